@@ -0,0 +1,110 @@
+package com.financebook.analytics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against Vector API kernels on ledger-sized columns, and the
+ * category totals built from them.
+ *
+ * Run with: mvn -Psimd,jmh test-compile exec:exec
+ * The vector variant needs the simd profile; without it setup fails
+ * instead of silently measuring the scalar loop twice.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class LedgerKernelsBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"scalar", "vector"})
+    private String kernels;
+
+    // Two years of items in six categories, a quarter of them uncategorized
+    private static final int DAYS = 730;
+    private static final int CATEGORIES = 6;
+
+    // A quarter of the dates
+    private static final int FROM_DAY = 200;
+    private static final int UNTIL_DAY = 383;
+
+    private LedgerKernels implementation;
+    private long[] amountCents;
+    private int[] epochDays;
+    private int[] categoryCodes;
+    private boolean[] inRange;
+    private LedgerColumns columns;
+
+    @Setup
+    public void setUp() {
+        implementation = "vector".equals(kernels) ? LedgerKernels.create(true) : new ScalarLedgerKernels();
+        if (!implementation.name().startsWith(kernels)) {
+            throw new IllegalStateException("Vector kernels not available, build with -Psimd");
+        }
+
+        // Signed amounts up to 5000.00, roughly as spread as a household ledger
+        SplittableRandom random = new SplittableRandom(42);
+        amountCents = new long[size];
+        epochDays = new int[size];
+        categoryCodes = new int[size];
+        for (int i = 0; i < size; i++) {
+            amountCents[i] = random.nextLong(-500_000, 500_000);
+            epochDays[i] = random.nextInt(DAYS);
+            categoryCodes[i] = random.nextInt(4) == 0 ? LedgerColumns.NONE : random.nextInt(CATEGORIES);
+        }
+
+        inRange = new boolean[size];
+        implementation.maskDateRange(epochDays, size, FROM_DAY, UNTIL_DAY, inRange);
+
+        LocalDate epoch = LocalDate.ofEpochDay(0);
+        columns = new LedgerColumns(implementation);
+        for (int i = 0; i < size; i++) {
+            Long categoryId = categoryCodes[i] == LedgerColumns.NONE ? null : (long) categoryCodes[i];
+            columns.upsert(new LedgerColumns.Row((long) i, epoch.plusDays(epochDays[i]).atStartOfDay(),
+                    BigDecimal.valueOf(amountCents[i], 2), categoryId, null));
+        }
+    }
+
+    // Fractional interval bounds, the case the amount histogram cannot answer
+    @Benchmark
+    public long countAbsInRange() {
+        return implementation.countAbsInRange(amountCents, size, 12_345, 67_890);
+    }
+
+    @Benchmark
+    public int maskDateRange() {
+        return implementation.maskDateRange(epochDays, size, FROM_DAY, UNTIL_DAY, inRange);
+    }
+
+    @Benchmark
+    public long sumMasked() {
+        long[] sums = new long[2];
+        return implementation.sumMasked(amountCents, categoryCodes, 0, inRange, size, sums) + sums[0] + sums[1];
+    }
+
+    // Date mask plus grouping by category, as the statistics endpoint runs it
+    @Benchmark
+    public List<LedgerColumns.CategoryTotals> totalsByCategory() {
+        return columns.totalsByCategory(FROM_DAY, UNTIL_DAY);
+    }
+}
@@ -0,0 +1,155 @@
+package com.financebook.analytics;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+/**
+ * One user's absolute payment amounts counted in a Fenwick tree.
+ *
+ * Bucket b holds amounts in [b, b + 1) currency units, so counting items in
+ * a range with whole-unit bounds takes two prefix sums. Amounts at or above
+ * MAX_BUCKETS units stay outside the tree and are only counted by open-ended
+ * ranges. The tree grows by doubling up to MAX_BUCKETS.
+ *
+ * The amount of every item is kept as well, which makes upsert and remove
+ * idempotent and lets them be applied more than once, like the patches of
+ * {@link LedgerColumns}. All methods are synchronized; each one is O(log n)
+ * apart from loading and growth.
+ */
+public final class AmountHistogram {
+
+    private static final long CENTS_PER_BUCKET = 100;
+    private static final int INITIAL_BUCKETS = 1 << 10;
+    private static final int MAX_BUCKETS = 1 << 20;
+
+    /**
+     * Item loaded from the database or written by a patch.
+     */
+    public record Entry(long itemId, long amountCents) {
+    }
+
+    private boolean loaded;
+
+    // 1-based Fenwick tree over buckets 0 .. tree.length - 2
+    private int[] tree = new int[INITIAL_BUCKETS + 1];
+    private final Map<Long, Long> absCentsByItemId = new HashMap<>();
+
+    /**
+     * Load the histogram once; later calls return immediately.
+     */
+    public synchronized void loadIfNeeded(Supplier<List<Entry>> loader) {
+        if (loaded) {
+            return;
+        }
+        for (Entry entry : loader.get()) {
+            upsertLocked(entry.itemId(), entry.amountCents());
+        }
+        loaded = true;
+    }
+
+    /**
+     * Insert or replace the amount of an item.
+     */
+    public synchronized void upsert(long itemId, long amountCents) {
+        upsertLocked(itemId, amountCents);
+    }
+
+    /**
+     * Remove an item, if present.
+     */
+    public synchronized void remove(long itemId) {
+        Long previous = absCentsByItemId.remove(itemId);
+        if (previous != null) {
+            add(previous, -1);
+        }
+    }
+
+    public synchronized int size() {
+        return absCentsByItemId.size();
+    }
+
+    /**
+     * Number of items whose absolute amount lies in [lowCents, highCents);
+     * highCents Long.MAX_VALUE means unbounded. Empty when a bound is not a
+     * whole currency unit or lies beyond the largest bucket, in which case the
+     * caller has to count exactly elsewhere.
+     */
+    public synchronized OptionalLong countInRange(long lowCents, long highCents) {
+        if (lowCents <= 0 && highCents == Long.MAX_VALUE) {
+            return OptionalLong.of(absCentsByItemId.size());
+        }
+        if (!isBucketBound(lowCents) || (highCents != Long.MAX_VALUE && !isBucketBound(highCents))) {
+            return OptionalLong.empty();
+        }
+
+        long below = countBelow(lowCents);
+        long belowHigh = highCents == Long.MAX_VALUE ? absCentsByItemId.size() : countBelow(highCents);
+        return OptionalLong.of(Math.max(0, belowHigh - below));
+    }
+
+    private static boolean isBucketBound(long cents) {
+        return cents <= 0 || (cents % CENTS_PER_BUCKET == 0 && cents / CENTS_PER_BUCKET <= MAX_BUCKETS);
+    }
+
+    // Items with absolute amount below a bucket bound
+    private long countBelow(long cents) {
+        if (cents <= 0) {
+            return 0;
+        }
+        int buckets = (int) (cents / CENTS_PER_BUCKET);
+        return prefixSum(Math.min(buckets, tree.length - 1));
+    }
+
+    private void upsertLocked(long itemId, long amountCents) {
+        long abs = Math.abs(amountCents);
+        ensureCapacity(abs);
+        Long previous = absCentsByItemId.put(itemId, abs);
+        if (previous != null) {
+            add(previous, -1);
+        }
+        add(abs, 1);
+    }
+
+    private void add(long absCents, int delta) {
+        long bucket = absCents / CENTS_PER_BUCKET;
+        if (bucket >= MAX_BUCKETS) {
+            return;
+        }
+        for (int i = (int) bucket + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Sum of buckets 0 .. count - 1
+    private long prefixSum(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Rebuild a larger tree from the stored amounts if absCents does not fit
+    private void ensureCapacity(long absCents) {
+        long bucket = absCents / CENTS_PER_BUCKET;
+        if (bucket >= MAX_BUCKETS || bucket < tree.length - 1) {
+            return;
+        }
+
+        int buckets = tree.length - 1;
+        while (buckets <= bucket) {
+            buckets *= 2;
+        }
+        tree = new int[buckets + 1];
+        for (long abs : absCentsByItemId.values()) {
+            if (abs / CENTS_PER_BUCKET < MAX_BUCKETS) {
+                for (int i = (int) (abs / CENTS_PER_BUCKET) + 1; i < tree.length; i += i & -i) {
+                    tree[i]++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.financebook.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * One user's ledger held in primitive columns.
+ *
+ * Row i of every column describes the same payment item. Dates are stored
+ * as epoch days, amounts as signed cents, and the standard category and
+ * recipient as dense dictionary codes (-1 for none). Rows are unordered;
+ * removing an item moves the last row into its slot.
+ *
+ * All access goes through a read/write lock, so aggregates can run
+ * concurrently while patches and loading are exclusive. Amount range scans,
+ * date filters and masked sums are delegated to {@link LedgerKernels}.
+ * Grouping by category is a plain loop, as the Vector API has no
+ * conflict-free scatter to vectorize it; with few categories and SIMD
+ * kernels, one masked sum per category is used instead.
+ */
+public final class LedgerColumns {
+
+    // Dictionary code for a missing category or recipient
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Up to this many category slots, totals come from one masked sum per category
+    private static final int MAX_MASKED_SUM_SLOTS = 8;
+
+    /**
+     * Totals of one standard category; categoryId is null for items without one.
+     */
+    public record CategoryTotals(Long categoryId, long incomeCents, long expenseCents, long count) {
+    }
+
+    /**
+     * Row loaded from the database or written by a patch.
+     */
+    public record Row(Long itemId, LocalDateTime date, BigDecimal amount, Long categoryId, Long recipientId) {
+    }
+
+    private final LedgerKernels kernels;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean loaded;
+
+    private int size;
+    private long[] itemIds = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] amountCents = new long[INITIAL_CAPACITY];
+    private int[] categoryCodes = new int[INITIAL_CAPACITY];
+    private int[] recipientCodes = new int[INITIAL_CAPACITY];
+
+    private final Map<Long, Integer> rowByItemId = new HashMap<>();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary recipients = new Dictionary();
+
+    public LedgerColumns(LedgerKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Load the columns once; later calls return immediately.
+     * Patches that arrive while loading wait for the load to finish.
+     */
+    public void loadIfNeeded(Supplier<List<Row>> loader) {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                for (Row row : loader.get()) {
+                    upsertLocked(row);
+                }
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace the row of an item.
+     */
+    public void upsert(Row row) {
+        lock.writeLock().lock();
+        try {
+            upsertLocked(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the row of an item, if present.
+     */
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            Integer index = rowByItemId.remove(itemId);
+            if (index == null) {
+                return;
+            }
+
+            int last = size - 1;
+            if (index != last) {
+                itemIds[index] = itemIds[last];
+                epochDays[index] = epochDays[last];
+                amountCents[index] = amountCents[last];
+                categoryCodes[index] = categoryCodes[last];
+                recipientCodes[index] = recipientCodes[last];
+                rowByItemId.put(itemIds[index], index);
+            }
+            size = last;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of items whose absolute amount lies in [lowCents, highCents).
+     */
+    public long countAbsAmountInRange(long lowCents, long highCents) {
+        lock.readLock().lock();
+        try {
+            return kernels.countAbsInRange(amountCents, size, lowCents, highCents);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Income and expense totals per standard category for items dated in
+     * [fromEpochDay, untilEpochDay). Expenses are positive.
+     */
+    public List<CategoryTotals> totalsByCategory(int fromEpochDay, int untilEpochDay) {
+        lock.readLock().lock();
+        try {
+            boolean[] inRange = new boolean[size];
+            if (kernels.maskDateRange(epochDays, size, fromEpochDay, untilEpochDay, inRange) == 0) {
+                return new ArrayList<>();
+            }
+
+            // Slot 0 is for items without a category, slot code + 1 for the rest
+            int slots = categories.size() + 1;
+            return kernels.preferMaskedSums() && slots <= MAX_MASKED_SUM_SLOTS
+                    ? totalsByMaskedSums(inRange, slots)
+                    : totalsByScatter(inRange, slots);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Convert an amount to signed cents.    /**
+     * Convert an amount to signed cents.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // One masked-sum pass over the amount column per category
+    private List<CategoryTotals> totalsByMaskedSums(boolean[] inRange, int slots) {
+        List<CategoryTotals> totals = new ArrayList<>();
+        long[] sums = new long[2];
+        for (int slot = 0; slot < slots; slot++) {
+            sums[0] = 0;
+            sums[1] = 0;
+            long count = kernels.sumMasked(amountCents, categoryCodes, slot - 1, inRange, size, sums);
+            if (count > 0) {
+                totals.add(new CategoryTotals(categories.decode(slot - 1), sums[0], sums[1], count));
+            }
+        }
+        return totals;
+    }
+
+    // A single pass adding each selected row to its category's slot
+    private List<CategoryTotals> totalsByScatter(boolean[] inRange, int slots) {
+        long[] income = new long[slots];
+        long[] expense = new long[slots];
+        long[] count = new long[slots];
+
+        for (int i = 0; i < size; i++) {
+            if (!inRange[i]) {
+                continue;
+            }
+            int slot = categoryCodes[i] + 1;
+            long cents = amountCents[i];
+            if (cents >= 0) {
+                income[slot] += cents;
+            } else {
+                expense[slot] -= cents;
+            }
+            count[slot]++;
+        }
+
+        List<CategoryTotals> totals = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            if (count[slot] > 0) {
+                totals.add(new CategoryTotals(categories.decode(slot - 1), income[slot], expense[slot], count[slot]));
+            }
+        }
+        return totals;
+    }
+
+    private void upsertLocked(Row row) {
+        Integer existing = rowByItemId.get(row.itemId());
+        int index;
+        if (existing != null) {
+            index = existing;
+        } else {
+            ensureCapacity(size + 1);
+            index = size++;
+            rowByItemId.put(row.itemId(), index);
+        }
+
+        itemIds[index] = row.itemId();
+        epochDays[index] = Math.toIntExact(row.date().toLocalDate().toEpochDay());
+        amountCents[index] = toCents(row.amount());
+        categoryCodes[index] = categories.encode(row.categoryId());
+        recipientCodes[index] = recipients.encode(row.recipientId());
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= itemIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, itemIds.length * 2);
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        amountCents = Arrays.copyOf(amountCents, capacity);
+        categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+        recipientCodes = Arrays.copyOf(recipientCodes, capacity);
+    }
+
+    /**
+     * Dense codes for entity ids; codes are never reused.
+     */
+    private static final class Dictionary {
+
+        private final Map<Long, Integer> codeById = new HashMap<>();
+        private long[] idByCode = new long[16];
+
+        int encode(Long id) {
+            if (id == null) {
+                return NONE;
+            }
+            Integer code = codeById.get(id);
+            if (code != null) {
+                return code;
+            }
+            int next = codeById.size();
+            if (next == idByCode.length) {
+                idByCode = Arrays.copyOf(idByCode, next * 2);
+            }
+            idByCode[next] = id;
+            codeById.put(id, next);
+            return next;
+        }
+
+        Long decode(int code) {
+            return code == NONE ? null : idByCode[code];
+        }
+
+        int size() {
+            return codeById.size();
+        }
+    }
+}
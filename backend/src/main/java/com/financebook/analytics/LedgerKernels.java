@@ -0,0 +1,63 @@
+package com.financebook.analytics;
+
+/**
+ * Scan kernels over the primitive columns of {@link LedgerColumns}.
+ *
+ * Every method reads the first {@code length} elements of its array only.
+ * Implementations must return identical results; {@link #create(boolean)}
+ * picks the SIMD one when it was compiled in (Maven profile simd) and the
+ * Vector API module is available.
+ */
+public interface LedgerKernels {
+
+    /**
+     * Number of values whose absolute value lies in [low, high).
+     */
+    long countAbsInRange(long[] values, int length, long low, long high);
+
+    /**
+     * Mark the days in [fromDay, untilDay) in {@code mask}.
+     *
+     * @return number of marked elements
+     */
+    int maskDateRange(int[] days, int length, int fromDay, int untilDay, boolean[] mask);
+
+    /**
+     * Add the positive values of the marked elements whose code equals
+     * {@code code} to sums[0] and the negated negative ones to sums[1].
+     *
+     * @return number of elements summed
+     */
+    long sumMasked(long[] values, int[] codes, int code, boolean[] mask, int length, long[] sums);
+
+    /**
+     * Whether a few {@link #sumMasked} passes, one per group, beat a single
+     * scalar pass that adds every row to its group.
+     */
+    boolean preferMaskedSums();
+
+    /**
+     * Name used in logs.
+     */
+    String name();
+
+    /**
+     * Kernels to use at runtime.
+     *
+     * @param preferVector use the Vector API implementation if it is on the
+     *                     class path and the jdk.incubator.vector module is present
+     */
+    static LedgerKernels create(boolean preferVector) {
+        if (preferVector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so this class never links against the incubator module
+                return (LedgerKernels) Class.forName("com.financebook.analytics.VectorLedgerKernels")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not compiled in or not linkable; fall through to the scalar kernels
+            }
+        }
+        return new ScalarLedgerKernels();
+    }
+}
@@ -0,0 +1,60 @@
+package com.financebook.analytics;
+
+/**
+ * Plain loops; the reference for VectorLedgerKernels and the fallback when
+ * the Vector API is not available.
+ */
+public final class ScalarLedgerKernels implements LedgerKernels {
+
+    @Override
+    public long countAbsInRange(long[] values, int length, long low, long high) {
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            long abs = Math.abs(values[i]);
+            if (abs >= low && abs < high) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int maskDateRange(int[] days, int length, int fromDay, int untilDay, boolean[] mask) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            boolean inRange = days[i] >= fromDay & days[i] < untilDay;
+            mask[i] = inRange;
+            count += inRange ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Override
+    public long sumMasked(long[] values, int[] codes, int code, boolean[] mask, int length, long[] sums) {
+        long income = 0;
+        long expense = 0;
+        long count = 0;
+        // Branch-free, as mask and sign are close to random per row
+        for (int i = 0; i < length; i++) {
+            long selected = mask[i] & codes[i] == code ? -1L : 0L;
+            long value = values[i] & selected;
+            long negative = value >> 63;
+            income += value & ~negative;
+            expense -= value & negative;
+            count -= selected;
+        }
+        sums[0] += income;
+        sums[1] += expense;
+        return count;
+    }
+
+    @Override
+    public boolean preferMaskedSums() {
+        return false;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
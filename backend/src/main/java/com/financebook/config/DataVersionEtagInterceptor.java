@@ -0,0 +1,67 @@
+package com.financebook.config;
+
+import com.financebook.service.DataVersionService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Answers conditional GETs on list endpoints from the user's data version.
+ *
+ * The version is read before the handler runs. If it matches If-None-Match
+ * the request ends with 304 Not Modified without querying the list tables;
+ * otherwise the ETag is added and the handler runs as usual. A write that
+ * lands between the two reads only makes the ETag older than the body,
+ * which costs the client one extra refetch but never serves stale data.
+ * Responses vary on Accept, since one URL can return JSON or NDJSON under
+ * the same version.
+ */
+@Component
+@RequiredArgsConstructor
+public class DataVersionEtagInterceptor implements HandlerInterceptor {
+    
+    // Let browsers store list responses but always revalidate them
+    private static final String CACHE_CONTROL = "private, no-cache";
+    
+    private final DataVersionService dataVersionService;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async re-dispatches (streamed listings) were already checked
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return true;
+        }
+        
+        return dataVersionService.currentVersion(authentication.getName())
+                .map(version -> {
+                    // Setting Cache-Control here also stops Spring Security
+                    // from overwriting it with no-store
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+                    // JSON and NDJSON listings share the ETag, so caches must key on Accept
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                    
+                    ServletWebRequest webRequest = new ServletWebRequest(request, response);
+                    return !webRequest.checkNotModified(DataVersionService.toEtag(version));
+                })
+                .orElse(true);
+    }
+}
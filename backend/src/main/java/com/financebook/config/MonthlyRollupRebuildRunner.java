@@ -0,0 +1,48 @@
+package com.financebook.config;
+
+import com.financebook.service.MonthlyRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rebuilds the monthly rollup on startup when requested.
+ *
+ * Usage:
+ *   --rebuild-monthly-rollup        rebuild for all users
+ *   --rebuild-monthly-rollup=42     rebuild for the user with id 42
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MonthlyRollupRebuildRunner implements ApplicationRunner {
+    
+    private static final String OPTION = "rebuild-monthly-rollup";
+    
+    private final MonthlyRollupService monthlyRollupService;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        
+        List<String> values = args.getOptionValues(OPTION);
+        if (values == null || values.isEmpty() || values.get(0).isBlank()) {
+            monthlyRollupService.rebuild(null);
+            return;
+        }
+        
+        for (String value : values) {
+            try {
+                monthlyRollupService.rebuild(Long.valueOf(value.trim()));
+            } catch (NumberFormatException e) {
+                log.error("Ignoring invalid user id for --{}: {}", OPTION, value);
+            }
+        }
+    }
+}
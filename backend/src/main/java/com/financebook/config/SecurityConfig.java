@@ -2,6 +2,7 @@ package com.financebook.config;
 
 import com.financebook.security.JwtAuthenticationEntryPoint;
 import com.financebook.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -76,6 +77,9 @@ public class SecurityConfig {
                 .requestMatchers("/docs/**", "/api-docs/**", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
                 .requestMatchers("/health/**", "/actuator/**").permitAll()
                 
+                // Async dispatches (streaming responses) were already authorized on the initial request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // All API endpoints require JWT authentication
                 .anyRequest().authenticated()
             );
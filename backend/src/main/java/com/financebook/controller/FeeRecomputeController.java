@@ -0,0 +1,48 @@
+package com.financebook.controller;
+
+import com.financebook.dto.response.FeeRecomputeJobResponse;
+import com.financebook.service.FeeRecomputeJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Fee recomputation controller.
+ * Lets admins re-apply a user's fee plan to existing payment items after the plan changed.
+ */
+@Tag(name = "Fee Recomputation", description = "Admin endpoints for recomputing transaction fees")
+@RestController
+@RequestMapping("/admin/fee-recompute")
+@RequiredArgsConstructor
+public class FeeRecomputeController {
+    
+    private final FeeRecomputeJobService feeRecomputeJobService;
+    
+    @Operation(summary = "Recompute a user's fees",
+            description = "Start a background job recomputing every payment item's fee under the user's " +
+                    "current fee plan. Returns the running job if one exists (admin only)")
+    @PostMapping("/users/{userId}")
+    public ResponseEntity<FeeRecomputeJobResponse> recomputeUserFees(
+            @PathVariable Long userId,
+            Authentication authentication) {
+        
+        FeeRecomputeJobResponse response = feeRecomputeJobService.submit(userId, authentication.getName());
+        
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+    
+    @Operation(summary = "Get fee recomputation progress", description = "Status and progress of a job (admin only)")
+    @GetMapping("/{jobId}")
+    public ResponseEntity<FeeRecomputeJobResponse> getJob(
+            @PathVariable String jobId,
+            Authentication authentication) {
+        
+        FeeRecomputeJobResponse response = feeRecomputeJobService.getJob(jobId, authentication.getName());
+        
+        return ResponseEntity.ok(response);
+    }
+}
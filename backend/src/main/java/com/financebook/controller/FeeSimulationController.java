@@ -0,0 +1,39 @@
+package com.financebook.controller;
+
+import com.financebook.dto.request.FeePlanSimulationRequest;
+import com.financebook.dto.response.FeeSimulationResponse;
+import com.financebook.service.FeeSimulationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Fee simulation controller.
+ * Lets admins preview a fee plan against a user's history before saving it.
+ */
+@Tag(name = "Fee Simulation", description = "Admin endpoints for what-if fee plan evaluation")
+@RestController
+@RequestMapping("/admin/fee-simulation")
+@RequiredArgsConstructor
+public class FeeSimulationController {
+    
+    private final FeeSimulationService feeSimulationService;
+    
+    @Operation(summary = "Simulate a fee plan",
+            description = "Total fees, per-interval breakdown and fee distribution a candidate plan would have " +
+                    "produced on the user's whole history. Nothing is saved (admin only)")
+    @PostMapping("/users/{userId}")
+    public ResponseEntity<FeeSimulationResponse> simulate(
+            @PathVariable Long userId,
+            @Valid @RequestBody FeePlanSimulationRequest request,
+            Authentication authentication) {
+        
+        FeeSimulationResponse response = feeSimulationService.simulate(userId, request, authentication.getName());
+        
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,14 +1,16 @@
 package com.financebook.controller;
 
-import com.financebook.dto.response.ImportCsvSummary;
-import com.financebook.service.ImportService;
-import com.opencsv.exceptions.CsvValidationException;
+import com.financebook.dto.response.ImportJobResponse;
+import com.financebook.service.ImportJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -21,16 +23,28 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class ImportController {
 
-    private final ImportService importService;
+    private final ImportJobService importJobService;
 
-    @Operation(summary = "Import CSV", description = "Import payment items from CSV file")
+    @Operation(summary = "Import CSV",
+            description = "Start a background import of payment items from a CSV file; poll the returned job")
     @PostMapping(value = "/import-csv", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<ImportCsvSummary> importCsv(
+    public ResponseEntity<ImportJobResponse> importCsv(
             @RequestParam("file") MultipartFile file,
-            Authentication authentication) throws IOException, CsvValidationException {
+            Authentication authentication) throws IOException {
 
-        ImportCsvSummary summary = importService.importCsv(file, authentication.getName());
+        ImportJobResponse job = importJobService.submit(file, authentication.getName());
 
-        return ResponseEntity.ok(summary);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @Operation(summary = "Get import progress", description = "Status, row counts and throughput of an import job")
+    @GetMapping("/import-jobs/{jobId}")
+    public ResponseEntity<ImportJobResponse> getImportJob(
+            @PathVariable String jobId,
+            Authentication authentication) {
+
+        ImportJobResponse job = importJobService.getJob(jobId, authentication.getName());
+
+        return ResponseEntity.ok(job);
     }
 }
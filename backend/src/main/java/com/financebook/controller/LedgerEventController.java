@@ -0,0 +1,31 @@
+package com.financebook.controller;
+
+import com.financebook.service.LedgerEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Ledger event controller.
+ * Streams committed changes to the current user's data as server-sent events.
+ */
+@Tag(name = "Events", description = "Ledger change notifications")
+@RestController
+@RequestMapping("/events")
+@RequiredArgsConstructor
+public class LedgerEventController {
+    
+    private final LedgerEventService ledgerEventService;
+    
+    @Operation(summary = "Subscribe to ledger changes",
+            description = "Server-sent event stream with one 'change' event per committed write. " +
+                    "Event ids are data versions; fetch missed changes through /sync")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(Authentication authentication) {
+        return ledgerEventService.subscribe(authentication.getName());
+    }
+}
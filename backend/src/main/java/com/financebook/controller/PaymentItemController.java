@@ -1,7 +1,9 @@
 package com.financebook.controller;
 
 import com.financebook.dto.request.PaymentItemCreateRequest;
+import com.financebook.dto.request.PaymentItemListRequest;
 import com.financebook.dto.request.PaymentItemUpdateRequest;
+import com.financebook.dto.response.PaymentItemPageResponse;
 import com.financebook.dto.response.PaymentItemReadResponse;
 import com.financebook.service.PaymentItemService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -9,10 +11,13 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -40,24 +45,73 @@ public class PaymentItemController {
         return ResponseEntity.ok(response);
     }
     
-    @Operation(summary = "List payment items", description = "Get all payment items with optional filtering")
+    @Operation(summary = "List payment items",
+            description = "Get payment items with optional filtering. Without cursor and limit the full list " +
+                    "is returned; with either of them a keyset page with next_cursor is returned instead")
     @GetMapping
-    public ResponseEntity<List<PaymentItemReadResponse>> listPaymentItems(
-            @Parameter(description = "Filter for expenses only")
-            @RequestParam(required = false) Boolean expenseOnly,
+    public ResponseEntity<?> listPaymentItems(
+            @ParameterObject @ModelAttribute PaymentItemListRequest request,
             
-            @Parameter(description = "Filter for incomes only")
-            @RequestParam(required = false) Boolean incomeOnly,
+            @Parameter(description = "Opaque cursor from a previous page's next_cursor")
+            @RequestParam(required = false) String cursor,
             
-            @Parameter(description = "Filter by category IDs (OR logic, includes descendants)")
-            @RequestParam(required = false) List<Long> categoryIds,
+            @Parameter(description = "Maximum number of items per page")
+            @RequestParam(required = false) Integer limit,
             
             Authentication authentication) {
         
-        List<PaymentItemReadResponse> items = paymentItemService.getAllPaymentItems(
-                expenseOnly, incomeOnly, categoryIds, authentication.getName());
+        if (cursor == null && limit == null) {
+            List<PaymentItemReadResponse> items = paymentItemService.getAllPaymentItems(
+                    request, authentication.getName());
+            
+            return ResponseEntity.ok(items);
+        }
+        
+        PaymentItemPageResponse page = paymentItemService.getPaymentItemPage(
+                request, cursor, limit, authentication.getName());
+        
+        return ResponseEntity.ok(page);
+    }
+    
+    @Operation(summary = "Stream payment items",
+            description = "Stream all matching payment items as newline-delimited JSON (Accept: application/x-ndjson)")
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPaymentItems(
+            @ParameterObject @ModelAttribute PaymentItemListRequest request,
+            
+            Authentication authentication) {
+        
+        // Validate up front so errors are reported before the stream starts
+        paymentItemService.validateListFilters(request);
+        
+        String username = authentication.getName();
+        StreamingResponseBody body = out -> paymentItemService.streamPaymentItems(
+                request, username, out);
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    @Operation(summary = "Search payment items",
+            description = "Full-text search over descriptions and recipient names, most relevant first")
+    @GetMapping("/search")
+    public ResponseEntity<PaymentItemPageResponse> searchPaymentItems(
+            @Parameter(description = "Search terms (supports quoted phrases, OR and -exclusion)")
+            @RequestParam String q,
+            
+            @Parameter(description = "Opaque cursor from a previous page's next_cursor")
+            @RequestParam(required = false) String cursor,
+            
+            @Parameter(description = "Maximum number of items per page")
+            @RequestParam(required = false) Integer limit,
+            
+            Authentication authentication) {
+        
+        PaymentItemPageResponse page = paymentItemService.searchPaymentItems(
+                q, cursor, limit, authentication.getName());
         
-        return ResponseEntity.ok(items);
+        return ResponseEntity.ok(page);
     }
     
     @Operation(summary = "Get payment item", description = "Get a single payment item by ID")
@@ -0,0 +1,65 @@
+package com.financebook.controller;
+
+import com.financebook.dto.response.CategoryStatisticsResponse;
+import com.financebook.dto.response.MonthlyStatisticsResponse;
+import com.financebook.service.StatisticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Statistics controller.
+ * Provides aggregated totals computed on the server.
+ */
+@Tag(name = "Statistics", description = "Aggregated ledger statistics")
+@RestController
+@RequestMapping("/statistics")
+@RequiredArgsConstructor
+public class StatisticsController {
+    
+    private final StatisticsService statisticsService;
+    
+    @Operation(summary = "Totals by category",
+            description = "Income and expense totals per standard category, rolled up through parent categories")
+    @GetMapping("/by-category")
+    public ResponseEntity<List<CategoryStatisticsResponse>> getTotalsByCategory(
+            @Parameter(description = "Only items on or after this date (ISO yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            
+            @Parameter(description = "Only items on or before this date (ISO yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            
+            Authentication authentication) {
+        
+        List<CategoryStatisticsResponse> totals = statisticsService.getTotalsByCategory(
+                from, to, authentication.getName());
+        
+        return ResponseEntity.ok(totals);
+    }
+    
+    @Operation(summary = "Totals by month",
+            description = "Income and expense totals per month; from and to are widened to whole months")
+    @GetMapping("/monthly")
+    public ResponseEntity<List<MonthlyStatisticsResponse>> getMonthlyTotals(
+            @Parameter(description = "A day in the first month to include (ISO yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            
+            @Parameter(description = "A day in the last month to include (ISO yyyy-MM-dd)")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            
+            Authentication authentication) {
+        
+        List<MonthlyStatisticsResponse> totals = statisticsService.getMonthlyTotals(
+                from, to, authentication.getName());
+        
+        return ResponseEntity.ok(totals);
+    }
+}
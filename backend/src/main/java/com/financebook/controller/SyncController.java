@@ -0,0 +1,39 @@
+package com.financebook.controller;
+
+import com.financebook.dto.response.SyncResponse;
+import com.financebook.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Sync controller.
+ * Provides incremental downloads of the ledger for client-side caches.
+ */
+@Tag(name = "Sync", description = "Delta sync endpoints")
+@RestController
+@RequestMapping("/sync")
+@RequiredArgsConstructor
+public class SyncController {
+    
+    private final SyncService syncService;
+    
+    @Operation(summary = "Sync changes",
+            description = "Get payment items, categories and recipients changed since a version, plus " +
+                    "tombstones for deleted rows. Without since, everything is returned")
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(
+            @Parameter(description = "Version returned by the previous sync")
+            @RequestParam(required = false) Long since,
+            
+            Authentication authentication) {
+        
+        SyncResponse response = syncService.getChangesSince(since, authentication.getName());
+        
+        return ResponseEntity.ok(response);
+    }
+}
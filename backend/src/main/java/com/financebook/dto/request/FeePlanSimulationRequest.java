@@ -0,0 +1,32 @@
+package com.financebook.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Candidate fee plan for a what-if simulation.
+ * Mirrors the body of the admin panel's save_fee_plan endpoint.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeePlanSimulationRequest {
+    
+    @NotBlank
+    @Pattern(regexp = "table|formula", message = "mode must be 'table' or 'formula'")
+    private String mode;
+    
+    private String formulaText;
+    
+    // Sorted lower limits of the amount intervals, e.g. [0, 100, 500]
+    private List<Double> amountTable;
+    
+    // Keyed by interval start; holds maxFee, points and coefficients
+    private Map<String, Object> intervalData;
+}
@@ -0,0 +1,68 @@
+package com.financebook.dto.request;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.BindParam;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Filter parameters for payment item listings.
+ * All fields are optional; date bounds are inclusive calendar days.
+ *
+ * Bound from snake_case query parameters through the constructor, so
+ * every listing endpoint accepts the same names.
+ */
+@Getter
+@ToString
+public class PaymentItemListRequest {
+
+    @Parameter(name = "expense_only", description = "Filter for expenses only")
+    private final Boolean expenseOnly;
+
+    @Parameter(name = "income_only", description = "Filter for incomes only")
+    private final Boolean incomeOnly;
+
+    @Parameter(name = "category_ids", description = "Filter by category IDs (OR logic, includes descendants)")
+    private final List<Long> categoryIds;
+
+    @Parameter(description = "Only items on or after this date (ISO yyyy-MM-dd)")
+    private final LocalDate from;
+
+    @Parameter(description = "Only items on or before this date (ISO yyyy-MM-dd)")
+    private final LocalDate to;
+
+    @Parameter(name = "min_amount", description = "Minimum signed amount (inclusive)")
+    private final BigDecimal minAmount;
+
+    @Parameter(name = "max_amount", description = "Maximum signed amount (inclusive)")
+    private final BigDecimal maxAmount;
+
+    @Parameter(name = "recipient_id", description = "Filter by recipient ID")
+    private final Long recipientId;
+
+    @Builder
+    public PaymentItemListRequest(
+            @BindParam("expense_only") Boolean expenseOnly,
+            @BindParam("income_only") Boolean incomeOnly,
+            @BindParam("category_ids") List<Long> categoryIds,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @BindParam("min_amount") BigDecimal minAmount,
+            @BindParam("max_amount") BigDecimal maxAmount,
+            @BindParam("recipient_id") Long recipientId) {
+        this.expenseOnly = expenseOnly;
+        this.incomeOnly = incomeOnly;
+        this.categoryIds = categoryIds;
+        this.from = from;
+        this.to = to;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.recipientId = recipientId;
+    }
+}
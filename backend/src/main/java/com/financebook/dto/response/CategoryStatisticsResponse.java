@@ -0,0 +1,30 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals for one category.
+ * Own totals count items filed directly under the category; totals include
+ * all descendants. Expenses are positive. categoryId and name are null for
+ * items without a category.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CategoryStatisticsResponse {
+    
+    private Long categoryId;
+    private String name;
+    private Long parentId;
+    private BigDecimal ownIncome;
+    private BigDecimal ownExpense;
+    private BigDecimal totalIncome;
+    private BigDecimal totalExpense;
+    private Long itemCount;
+}
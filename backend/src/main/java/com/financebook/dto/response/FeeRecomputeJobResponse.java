@@ -0,0 +1,29 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a fee recomputation job.
+ * status is one of queued, running, completed or failed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeRecomputeJobResponse {
+    
+    private String id;
+    private Long userId;
+    private String status;
+    private Long totalItems;
+    private Long processedItems;
+    private Long changedItems;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,23 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Number of simulated fees in [minFee, maxFee); maxFee is null for the last bucket.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeSimulationBucketResponse {
+    
+    private BigDecimal minFee;
+    private BigDecimal maxFee;
+    private long itemCount;
+    private BigDecimal totalFees;
+}
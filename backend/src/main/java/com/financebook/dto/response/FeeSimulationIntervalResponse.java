@@ -0,0 +1,27 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Simulated fees of one amount-table interval [lowerBound, upperBound);
+ * upperBound is null for the last interval.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeSimulationIntervalResponse {
+    
+    private BigDecimal lowerBound;
+    private BigDecimal upperBound;
+    private double frequency;
+    private long itemCount;
+    private long chargedCount;
+    private BigDecimal totalAmount;
+    private BigDecimal totalFees;
+}
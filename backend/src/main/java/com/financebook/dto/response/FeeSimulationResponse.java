@@ -0,0 +1,28 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Fees a candidate plan would have charged on a user's whole history.
+ * intervals is empty for formula plans.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeSimulationResponse {
+    
+    private Long userId;
+    private long itemCount;
+    private long chargedCount;
+    private BigDecimal totalAmount;
+    private BigDecimal totalFees;
+    private List<FeeSimulationIntervalResponse> intervals;
+    private List<FeeSimulationBucketResponse> distribution;
+}
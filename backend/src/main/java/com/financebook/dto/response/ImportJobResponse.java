@@ -0,0 +1,34 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a CSV import job.
+ * status is one of queued, running, completed or failed; the created and
+ * updated counts cover the chunks committed so far.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportJobResponse {
+    
+    private String id;
+    private String status;
+    private Long rowsProcessed;
+    private Long rowsFailed;
+    private Double rowsPerSecond;
+    private Long createdPayments;
+    private Long createdRecipients;
+    private Long updatedRecipients;
+    private Long createdCategories;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,26 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Payload of a server-sent ledger change event.
+ *
+ * ids is null when too many rows changed to list them (e.g. a CSV import);
+ * clients should then fetch the changes through /sync instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerChangeResponse {
+    
+    private Long version;
+    private String entityType;
+    private boolean deleted;
+    private List<Long> ids;
+}
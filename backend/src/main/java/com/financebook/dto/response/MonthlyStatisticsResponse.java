@@ -0,0 +1,25 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals for one month (yyyy-MM).
+ * Expenses are positive; balance is income minus expense.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MonthlyStatisticsResponse {
+    
+    private String month;
+    private BigDecimal income;
+    private BigDecimal expense;
+    private BigDecimal balance;
+    private Long itemCount;
+}
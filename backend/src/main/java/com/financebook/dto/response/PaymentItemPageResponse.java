@@ -0,0 +1,22 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One keyset page of payment items.
+ * nextCursor is null when there are no further items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentItemPageResponse {
+
+    private List<PaymentItemReadResponse> items;
+    private String nextCursor;
+}
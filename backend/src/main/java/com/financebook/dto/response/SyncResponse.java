@@ -0,0 +1,26 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Changes to a user's ledger since a data version.
+ * version is the value to pass as since on the next sync.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncResponse {
+    
+    private Long version;
+    private boolean fullSync;
+    private List<PaymentItemReadResponse> paymentItems;
+    private List<CategoryReadResponse> categories;
+    private List<RecipientReadResponse> recipients;
+    private List<SyncTombstoneResponse> deleted;
+}
@@ -0,0 +1,21 @@
+package com.financebook.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A row deleted since the client's last sync.
+ * entityType is one of PAYMENT_ITEM, CATEGORY or RECIPIENT.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SyncTombstoneResponse {
+    
+    private String entityType;
+    private Long id;
+    private Long version;
+}
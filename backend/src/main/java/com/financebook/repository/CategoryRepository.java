@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,4 +29,19 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     @Query("SELECT c FROM Category c WHERE c.user.id = :userId AND c.id = :categoryId")
     Optional<Category> findByIdAndUserId(@Param("categoryId") Long categoryId, @Param("userId") Long userId);
+    
+    /**
+     * Ids of the given categories and all of their descendants, resolved in a
+     * single recursive query. Only categories owned by the user are followed.
+     */
+    @Query(value = "WITH RECURSIVE category_tree AS (" +
+            "  SELECT c.id FROM category c WHERE c.user_id = :userId AND c.id IN (:rootIds) " +
+            "  UNION " +
+            "  SELECT c.id FROM category c JOIN category_tree t ON c.parent_id = t.id" +
+            ") SELECT id FROM category_tree", nativeQuery = true)
+    List<Long> findSelfAndDescendantIds(@Param("rootIds") Collection<Long> rootIds, @Param("userId") Long userId);
+    
+    @Query(value = "SELECT id FROM category WHERE user_id = :userId AND last_modified_version > :since",
+            nativeQuery = true)
+    List<Long> findIdsModifiedSince(@Param("userId") Long userId, @Param("since") long since);
 }
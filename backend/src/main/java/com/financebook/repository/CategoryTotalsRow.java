@@ -0,0 +1,20 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals of one category as read by {@link StatisticsRepository}.
+ * Own totals cover items whose standard category is this category; totals also
+ * include all descendants. categoryId is null for items without a category.
+ */
+public record CategoryTotalsRow(
+        Long categoryId,
+        String name,
+        Long parentId,
+        BigDecimal ownIncome,
+        BigDecimal ownExpense,
+        BigDecimal totalIncome,
+        BigDecimal totalExpense,
+        long itemCount
+) {
+}
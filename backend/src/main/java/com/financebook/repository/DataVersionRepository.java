@@ -0,0 +1,99 @@
+package com.financebook.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Versioning writes for conditional requests and delta sync.
+ *
+ * Incrementing the version locks the user's row until the writing
+ * transaction commits, so versions become visible to readers in order.
+ * The version columns are not mapped on the entities and are only
+ * written here.
+ */
+@Repository
+public class DataVersionRepository {
+    
+    // Keeps IN lists well below the driver's bind parameter limit
+    private static final int STAMP_CHUNK_SIZE = 1000;
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public DataVersionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+    
+    /**
+     * Increment the user's data version and return the new value.
+     */
+    public long incrementDataVersion(Long userId) {
+        Long version = jdbcTemplate.queryForObject(
+                "UPDATE \"user\" SET data_version = data_version + 1 WHERE id = :userId RETURNING data_version",
+                new MapSqlParameterSource("userId", userId),
+                Long.class);
+        return version != null ? version : 0L;
+    }
+    
+    /**
+     * Current data version of the user, as seen by the calling transaction.
+     */
+    public long findDataVersion(Long userId) {
+        Long version = jdbcTemplate.queryForObject(
+                "SELECT data_version FROM \"user\" WHERE id = :userId",
+                new MapSqlParameterSource("userId", userId),
+                Long.class);
+        return version != null ? version : 0L;
+    }
+    
+    /**
+     * Set last_modified_version on the given rows.
+     */
+    public void stamp(SyncEntityType type, Collection<Long> ids, long version) {
+        String sql = "UPDATE " + type.getTableName() +
+                " SET last_modified_version = :version WHERE id IN (:ids)";
+        
+        List<Long> pending = new ArrayList<>(ids);
+        for (int start = 0; start < pending.size(); start += STAMP_CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(start, Math.min(start + STAMP_CHUNK_SIZE, pending.size()));
+            jdbcTemplate.update(sql, new MapSqlParameterSource()
+                    .addValue("version", version)
+                    .addValue("ids", chunk));
+        }
+    }
+    
+    /**
+     * Record the deletion of a row.
+     */
+    public void insertTombstone(Long userId, SyncEntityType type, Long entityId, long version) {
+        jdbcTemplate.update(
+                "INSERT INTO sync_tombstone (user_id, entity_type, entity_id, version) " +
+                "VALUES (:userId, :entityType, :entityId, :version)",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("entityType", type.name())
+                        .addValue("entityId", entityId)
+                        .addValue("version", version));
+    }
+    
+    /**
+     * Deletions recorded after the given version, oldest first.
+     */
+    public List<SyncTombstoneRow> findTombstonesSince(Long userId, long since) {
+        return jdbcTemplate.query(
+                "SELECT entity_type, entity_id, version FROM sync_tombstone " +
+                "WHERE user_id = :userId AND version > :since ORDER BY version, id",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("since", since),
+                (rs, rowNum) -> new SyncTombstoneRow(
+                        SyncEntityType.valueOf(rs.getString("entity_type")),
+                        rs.getLong("entity_id"),
+                        rs.getLong("version")));
+    }
+}
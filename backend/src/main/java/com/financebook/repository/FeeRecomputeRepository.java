@@ -0,0 +1,130 @@
+package com.financebook.repository;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Bulk reads and writes for recomputing and simulating a user's transaction fees.
+ *
+ * Items are walked in id order in chunks. Each chunk is locked while it is
+ * recomputed, and its changes are written with one JDBC batch per statement.
+ */
+@Repository
+public class FeeRecomputeRepository {
+    
+    private static final String LOCK_CHUNK =
+            "SELECT p.id, p.amount, p.date, p.standard_category_id, " +
+            "       r.id AS fee_record_id, r.fee_amount, r.original_amount " +
+            "FROM paymentitem p " +
+            "LEFT JOIN transactionfeerecord r ON r.payment_item_id = p.id " +
+            "WHERE p.user_id = :userId AND p.id > :afterId " +
+            "ORDER BY p.id " +
+            "LIMIT :limit " +
+            "FOR UPDATE OF p";
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public FeeRecomputeRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+    
+    public long countItems(Long userId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM paymentitem WHERE user_id = :userId",
+                new MapSqlParameterSource("userId", userId),
+                Long.class);
+        return count != null ? count : 0L;
+    }
+    
+    /**
+     * Absolute amounts before fees of all the user's items, in cents.
+     */
+    public long[] findAbsOriginalCents(Long userId) {
+        LongStream.Builder cents = LongStream.builder();
+        jdbcTemplate.query(
+                "SELECT ABS(COALESCE(r.original_amount, p.amount)) AS amount " +
+                "FROM paymentitem p " +
+                "LEFT JOIN transactionfeerecord r ON r.payment_item_id = p.id " +
+                "WHERE p.user_id = :userId",
+                new MapSqlParameterSource("userId", userId),
+                (RowCallbackHandler) rs -> cents.add(rs.getBigDecimal("amount").movePointRight(2).longValueExact()));
+        return cents.build().toArray();
+    }
+    
+    /**
+     * Lock and read the next chunk of the user's items after the given id.
+     */
+    public List<FeeRecomputeRow> lockChunk(Long userId, long afterId, int limit) {
+        return jdbcTemplate.query(LOCK_CHUNK,
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new FeeRecomputeRow(
+                        rs.getLong("id"),
+                        rs.getBigDecimal("amount"),
+                        rs.getObject("date", LocalDateTime.class),
+                        rs.getObject("standard_category_id", Long.class),
+                        rs.getObject("fee_record_id", Long.class),
+                        rs.getBigDecimal("fee_amount"),
+                        rs.getBigDecimal("original_amount")));
+    }
+    
+    /**
+     * Write item amounts and insert, update or delete fee records.
+     */
+    public void applyUpdates(Long userId, Collection<FeeRecomputeUpdate> updates) {
+        List<SqlParameterSource> amounts = new ArrayList<>();
+        List<SqlParameterSource> inserts = new ArrayList<>();
+        List<SqlParameterSource> changes = new ArrayList<>();
+        List<SqlParameterSource> deletes = new ArrayList<>();
+        
+        for (FeeRecomputeUpdate update : updates) {
+            amounts.add(new MapSqlParameterSource()
+                    .addValue("id", update.itemId())
+                    .addValue("amount", update.adjustedAmount()));
+            
+            boolean charged = update.fee().compareTo(BigDecimal.ZERO) > 0;
+            if (update.feeRecordId() == null) {
+                if (charged) {
+                    inserts.add(new MapSqlParameterSource()
+                            .addValue("itemId", update.itemId())
+                            .addValue("userId", userId)
+                            .addValue("fee", update.fee())
+                            .addValue("originalAmount", update.originalAmount()));
+                }
+            } else if (charged) {
+                changes.add(new MapSqlParameterSource()
+                        .addValue("id", update.feeRecordId())
+                        .addValue("fee", update.fee())
+                        .addValue("originalAmount", update.originalAmount()));
+            } else {
+                deletes.add(new MapSqlParameterSource("id", update.feeRecordId()));
+            }
+        }
+        
+        batch("UPDATE paymentitem SET amount = :amount WHERE id = :id", amounts);
+        batch("INSERT INTO transactionfeerecord (payment_item_id, user_id, fee_amount, original_amount) " +
+                "VALUES (:itemId, :userId, :fee, :originalAmount)", inserts);
+        batch("UPDATE transactionfeerecord SET fee_amount = :fee, original_amount = :originalAmount " +
+                "WHERE id = :id", changes);
+        batch("DELETE FROM transactionfeerecord WHERE id = :id", deletes);
+    }
+    
+    private void batch(String sql, List<SqlParameterSource> params) {
+        if (!params.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, params.toArray(SqlParameterSource[]::new));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payment item with its fee record, as read for fee recomputation.
+ * The fee record columns are null when no fee was charged.
+ */
+public record FeeRecomputeRow(
+        Long itemId,
+        BigDecimal amount,
+        LocalDateTime date,
+        Long standardCategoryId,
+        Long feeRecordId,
+        BigDecimal feeAmount,
+        BigDecimal originalAmount
+) {
+}
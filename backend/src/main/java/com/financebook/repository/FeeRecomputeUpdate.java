@@ -0,0 +1,20 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of recomputing the fee of one payment item.
+ *
+ * @param feeRecordId    existing fee record, or null
+ * @param originalAmount amount before fees
+ * @param fee            new fee; zero removes the fee record
+ * @param adjustedAmount new amount of the payment item
+ */
+public record FeeRecomputeUpdate(
+        Long itemId,
+        Long feeRecordId,
+        BigDecimal originalAmount,
+        BigDecimal fee,
+        BigDecimal adjustedAmount
+) {
+}
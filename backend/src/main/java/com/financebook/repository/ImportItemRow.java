@@ -0,0 +1,20 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payment item parsed from an import file, ready to be inserted.
+ *
+ * @param recipientId resolved recipient, or null
+ * @param categoryId  resolved standard category, also linked as a category; or null
+ */
+public record ImportItemRow(
+        BigDecimal amount,
+        LocalDateTime date,
+        String description,
+        boolean periodic,
+        Long recipientId,
+        Long categoryId
+) {
+}
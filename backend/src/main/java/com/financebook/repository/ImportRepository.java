@@ -0,0 +1,81 @@
+package com.financebook.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk inserts for CSV imports.
+ *
+ * Payment item ids are drawn from the table's sequence in one query per
+ * chunk, so items and their category links can be written as JDBC batches
+ * instead of one IDENTITY insert per row.
+ */
+@Repository
+public class ImportRepository {
+    
+    private static final String ALLOCATE_IDS =
+            "SELECT nextval(pg_get_serial_sequence('paymentitem', 'id')) " +
+            "FROM generate_series(1, :count)";
+    
+    private static final String INSERT_ITEM =
+            "INSERT INTO paymentitem (id, amount, date, periodic, description, " +
+            "                         recipient_id, standard_category_id, user_id) " +
+            "VALUES (:id, :amount, :date, :periodic, :description, :recipientId, :categoryId, :userId)";
+    
+    private static final String INSERT_LINK =
+            "INSERT INTO paymentitemcategorylink (payment_item_id, category_id) VALUES (:itemId, :categoryId)";
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public ImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+    
+    /**
+     * Insert the items of one chunk with their category links.
+     *
+     * @return ids of the new items, in the order of the rows
+     */
+    public List<Long> insertPaymentItems(Long userId, List<ImportItemRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        
+        List<Long> ids = jdbcTemplate.queryForList(ALLOCATE_IDS,
+                new MapSqlParameterSource("count", rows.size()), Long.class);
+        
+        List<SqlParameterSource> items = new ArrayList<>(rows.size());
+        List<SqlParameterSource> links = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ImportItemRow row = rows.get(i);
+            items.add(new MapSqlParameterSource()
+                    .addValue("id", ids.get(i))
+                    .addValue("amount", row.amount())
+                    .addValue("date", row.date())
+                    .addValue("periodic", row.periodic())
+                    .addValue("description", row.description(), Types.VARCHAR)
+                    .addValue("recipientId", row.recipientId(), Types.BIGINT)
+                    .addValue("categoryId", row.categoryId(), Types.BIGINT)
+                    .addValue("userId", userId));
+            
+            if (row.categoryId() != null) {
+                links.add(new MapSqlParameterSource()
+                        .addValue("itemId", ids.get(i))
+                        .addValue("categoryId", row.categoryId()));
+            }
+        }
+        
+        jdbcTemplate.batchUpdate(INSERT_ITEM, items.toArray(SqlParameterSource[]::new));
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LINK, links.toArray(SqlParameterSource[]::new));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,295 @@
+package com.financebook.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Set-based CSV imports through the import_staging table.
+ *
+ * Parsed lines are streamed in with PostgreSQL's COPY protocol, then
+ * recipients, categories and payment items are created from the staged
+ * rows with one statement each. Names resolve to the oldest recipient or
+ * category with that name, as in row-by-row imports. Everything runs in
+ * the caller's transaction.
+ */
+@Repository
+public class ImportStagingRepository {
+
+    private static final String COPY_STAGING =
+            "COPY import_staging (import_id, line_no, amount, date, periodic, description, " +
+            "                     recipient_name, recipient_address, category_name) FROM STDIN";
+
+    // Fill empty addresses of existing recipients from the first non-blank staged address
+    private static final String UPDATE_RECIPIENT_ADDRESSES =
+            "UPDATE recipient r SET address = a.recipient_address, last_modified_version = :version " +
+            "FROM (SELECT DISTINCT ON (recipient_name) recipient_name, recipient_address " +
+            "      FROM import_staging " +
+            "      WHERE import_id = :importId AND recipient_name IS NOT NULL " +
+            "        AND btrim(recipient_address) <> '' " +
+            "      ORDER BY recipient_name, line_no) a " +
+            "WHERE r.user_id = :userId AND r.name = a.recipient_name " +
+            "  AND (r.address IS NULL OR btrim(r.address) = '') " +
+            "  AND r.id = (SELECT MIN(id) FROM recipient WHERE user_id = :userId AND name = r.name) " +
+            "RETURNING r.id";
+
+    // New recipients take their first non-blank staged address, else the first one
+    private static final String INSERT_RECIPIENTS =
+            "INSERT INTO recipient (name, address, user_id, last_modified_version) " +
+            "SELECT DISTINCT ON (s.recipient_name) s.recipient_name, s.recipient_address, :userId, :version " +
+            "FROM import_staging s " +
+            "WHERE s.import_id = :importId AND s.recipient_name IS NOT NULL " +
+            "  AND NOT EXISTS (SELECT 1 FROM recipient r WHERE r.user_id = :userId AND r.name = s.recipient_name) " +
+            "ORDER BY s.recipient_name, COALESCE(btrim(s.recipient_address), '') = '', s.line_no " +
+            "RETURNING id";
+
+    private static final String HAS_NEW_CATEGORIES =
+            "SELECT EXISTS (SELECT 1 FROM import_staging s " +
+            "               WHERE s.import_id = :importId AND s.category_name IS NOT NULL " +
+            "                 AND NOT EXISTS (SELECT 1 FROM category c " +
+            "                                 WHERE c.user_id = :userId AND c.name = s.category_name))";
+
+    private static final String INSERT_CATEGORIES =
+            "INSERT INTO category (name, type_id, user_id, last_modified_version) " +
+            "SELECT DISTINCT s.category_name, :typeId, :userId, :version " +
+            "FROM import_staging s " +
+            "WHERE s.import_id = :importId AND s.category_name IS NOT NULL " +
+            "  AND NOT EXISTS (SELECT 1 FROM category c WHERE c.user_id = :userId AND c.name = s.category_name) " +
+            "RETURNING id";
+
+    // Items in file order, each linked to its standard category
+    private static final String INSERT_ITEMS =
+            "WITH items AS ( " +
+            "  INSERT INTO paymentitem (amount, date, periodic, description, recipient_id, " +
+            "                           standard_category_id, user_id, last_modified_version) " +
+            "  SELECT s.amount, s.date, s.periodic, s.description, r.id, c.id, :userId, :version " +
+            "  FROM import_staging s " +
+            "  LEFT JOIN (SELECT name, MIN(id) AS id FROM recipient WHERE user_id = :userId GROUP BY name) r " +
+            "         ON r.name = s.recipient_name " +
+            "  LEFT JOIN (SELECT name, MIN(id) AS id FROM category WHERE user_id = :userId GROUP BY name) c " +
+            "         ON c.name = s.category_name " +
+            "  WHERE s.import_id = :importId " +
+            "  ORDER BY s.line_no " +
+            "  RETURNING id, standard_category_id " +
+            "), links AS ( " +
+            "  INSERT INTO paymentitemcategorylink (payment_item_id, category_id) " +
+            "  SELECT id, standard_category_id FROM items WHERE standard_category_id IS NOT NULL " +
+            ") " +
+            "SELECT id FROM items ORDER BY id";
+
+    // Items written by one import share its version
+    private static final String MONTHLY_TOTALS =
+            "SELECT date_trunc('month', p.date)::date AS month, p.standard_category_id AS category_id, " +
+            "       SUM(CASE WHEN p.amount >= 0 THEN p.amount ELSE 0 END) AS income, " +
+            "       SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END) AS expense, " +
+            "       COUNT(*) AS count " +
+            "FROM paymentitem p " +
+            "WHERE p.user_id = :userId AND p.last_modified_version = :version " +
+            "GROUP BY date_trunc('month', p.date)::date, p.standard_category_id";
+
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ImportStagingRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Start streaming lines of an import into the staging table, on the
+     * connection of the current transaction.
+     */
+    public StagingCopy openCopy(String importId) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Staging an import requires a transaction");
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return new StagingCopy(importId, connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start COPY into import_staging", e);
+        }
+    }
+
+    /**
+     * Fill in missing addresses of the user's existing recipients.
+     *
+     * @return ids of the updated recipients
+     */
+    public List<Long> updateRecipientAddresses(String importId, Long userId, long version) {
+        return jdbcTemplate.queryForList(UPDATE_RECIPIENT_ADDRESSES, params(importId, userId, version), Long.class);
+    }
+
+    /**
+     * Create the staged recipients the user does not have yet.
+     *
+     * @return ids of the new recipients
+     */
+    public List<Long> insertRecipients(String importId, Long userId, long version) {
+        return jdbcTemplate.queryForList(INSERT_RECIPIENTS, params(importId, userId, version), Long.class);
+    }
+
+    public boolean hasNewCategories(String importId, Long userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_NEW_CATEGORIES,
+                new MapSqlParameterSource()
+                        .addValue("importId", importId)
+                        .addValue("userId", userId),
+                Boolean.class));
+    }
+
+    /**
+     * Create the staged categories the user does not have yet, under the given type.
+     *
+     * @return ids of the new categories
+     */
+    public List<Long> insertCategories(String importId, Long userId, Long typeId, long version) {
+        return jdbcTemplate.queryForList(INSERT_CATEGORIES,
+                params(importId, userId, version).addValue("typeId", typeId), Long.class);
+    }
+
+    /**
+     * Create the staged payment items and their category links.
+     *
+     * @return ids of the new items
+     */
+    public List<Long> insertPaymentItems(String importId, Long userId, long version) {
+        return jdbcTemplate.queryForList(INSERT_ITEMS, params(importId, userId, version), Long.class);
+    }
+
+    /**
+     * Monthly rollup totals of the items inserted under the version.
+     */
+    public List<MonthlyRollupDelta> findMonthlyTotals(Long userId, long version) {
+        return jdbcTemplate.query(MONTHLY_TOTALS,
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("version", version),
+                (rs, rowNum) -> new MonthlyRollupDelta(
+                        rs.getObject("month", LocalDate.class),
+                        rs.getObject("category_id", Long.class),
+                        rs.getBigDecimal("income"),
+                        rs.getBigDecimal("expense"),
+                        rs.getLong("count")));
+    }
+
+    public void deleteStaged(String importId) {
+        jdbcTemplate.update("DELETE FROM import_staging WHERE import_id = :importId",
+                new MapSqlParameterSource("importId", importId));
+    }
+
+    private static MapSqlParameterSource params(String importId, Long userId, long version) {
+        return new MapSqlParameterSource()
+                .addValue("importId", importId)
+                .addValue("userId", userId)
+                .addValue("version", version);
+    }
+
+    /**
+     * An open COPY into import_staging. Rows are encoded in COPY's text
+     * format and sent in blocks; close() aborts the COPY unless it was
+     * finished.
+     */
+    public static final class StagingCopy implements AutoCloseable {
+
+        private static final int FLUSH_CHARS = 64 * 1024;
+
+        private final String importId;
+        private final CopyIn copyIn;
+        private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 4096);
+
+        private StagingCopy(String importId, CopyIn copyIn) {
+            this.importId = importId;
+            this.copyIn = copyIn;
+        }
+
+        public void write(long lineNo, BigDecimal amount, LocalDateTime date, boolean periodic,
+                          String description, String recipientName, String recipientAddress,
+                          String categoryName) {
+            buffer.append(importId).append('\t')
+                    .append(lineNo).append('\t')
+                    .append(amount.toPlainString()).append('\t')
+                    .append(date).append('\t')
+                    .append(periodic ? 't' : 'f');
+            field(description);
+            field(recipientName);
+            field(recipientAddress);
+            field(categoryName);
+            buffer.append('\n');
+
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        /**
+         * Send the remaining rows and complete the COPY.
+         *
+         * @return number of rows staged
+         */
+        public long finish() {
+            flush();
+            try {
+                return copyIn.endCopy();
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY into import_staging failed", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (copyIn.isActive()) {
+                try {
+                    copyIn.cancelCopy();
+                } catch (SQLException e) {
+                    // The transaction is rolled back anyway
+                }
+            }
+        }
+
+        // Tab-separated text field, NULL as \N
+        private void field(String value) {
+            buffer.append('\t');
+            if (value == null) {
+                buffer.append("\\N");
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> buffer.append("\\\\");
+                    case '\t' -> buffer.append("\\t");
+                    case '\n' -> buffer.append("\\n");
+                    case '\r' -> buffer.append("\\r");
+                    default -> buffer.append(c);
+                }
+            }
+        }
+
+        private void flush() {
+            if (buffer.length() == 0) {
+                return;
+            }
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            buffer.setLength(0);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw new IllegalStateException("COPY into import_staging failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Change to one monthly_rollup row.
+ * month is the first day of the month; categoryId may be null.
+ */
+public record MonthlyRollupDelta(
+        LocalDate month,
+        Long categoryId,
+        BigDecimal incomeDelta,
+        BigDecimal expenseDelta,
+        long countDelta
+) {
+}
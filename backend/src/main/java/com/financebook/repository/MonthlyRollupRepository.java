@@ -0,0 +1,117 @@
+package com.financebook.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Access to the monthly_rollup table.
+ *
+ * Deltas are applied as upserts on (user_id, month, category). A rebuild
+ * locks the table against concurrent deltas, so writers that commit during
+ * the rebuild are applied on top of it rather than lost.
+ */
+@Repository
+public class MonthlyRollupRepository {
+    
+    private static final String UPSERT =
+            "INSERT INTO monthly_rollup (user_id, month, category_id, income_sum, expense_sum, count) " +
+            "VALUES (:userId, :month, :categoryId, :incomeDelta, :expenseDelta, :countDelta) " +
+            "ON CONFLICT (user_id, month, (COALESCE(category_id, 0))) DO UPDATE SET " +
+            "  income_sum = monthly_rollup.income_sum + EXCLUDED.income_sum, " +
+            "  expense_sum = monthly_rollup.expense_sum + EXCLUDED.expense_sum, " +
+            "  count = monthly_rollup.count + EXCLUDED.count";
+    
+    private static final String REBUILD_SELECT =
+            "INSERT INTO monthly_rollup (user_id, month, category_id, income_sum, expense_sum, count) " +
+            "SELECT p.user_id, date_trunc('month', p.date)::date, p.standard_category_id, " +
+            "       SUM(CASE WHEN p.amount >= 0 THEN p.amount ELSE 0 END), " +
+            "       SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END), " +
+            "       COUNT(*) " +
+            "FROM paymentitem p ";
+    
+    private static final String REBUILD_GROUP_BY =
+            " GROUP BY p.user_id, date_trunc('month', p.date)::date, p.standard_category_id";
+    
+    private static final RowMapper<MonthlyTotalsRow> MONTHLY_TOTALS_MAPPER = (rs, rowNum) -> new MonthlyTotalsRow(
+            rs.getObject("month", LocalDate.class),
+            rs.getBigDecimal("income"),
+            rs.getBigDecimal("expense"),
+            rs.getLong("item_count"));
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public MonthlyRollupRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+    
+    /**
+     * Add the deltas to the user's rollup rows in one batch.
+     */
+    public void applyDeltas(Long userId, Collection<MonthlyRollupDelta> deltas) {
+        SqlParameterSource[] batch = deltas.stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("month", delta.month())
+                        .addValue("categoryId", delta.categoryId())
+                        .addValue("incomeDelta", delta.incomeDelta())
+                        .addValue("expenseDelta", delta.expenseDelta())
+                        .addValue("countDelta", delta.countDelta()))
+                .toArray(SqlParameterSource[]::new);
+        
+        jdbcTemplate.batchUpdate(UPSERT, batch);
+    }
+    
+    /**
+     * Monthly totals over all categories, oldest month first.
+     *
+     * @param userId    owner of the items
+     * @param monthFrom first month to include (first day), or null
+     * @param monthTo   last month to include (first day), or null
+     */
+    public List<MonthlyTotalsRow> findMonthlyTotals(Long userId, LocalDate monthFrom, LocalDate monthTo) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        
+        StringBuilder sql = new StringBuilder(
+                "SELECT month, SUM(income_sum) AS income, SUM(expense_sum) AS expense, SUM(count) AS item_count " +
+                "FROM monthly_rollup WHERE user_id = :userId AND count > 0");
+        if (monthFrom != null) {
+            sql.append(" AND month >= :monthFrom");
+            params.addValue("monthFrom", monthFrom);
+        }
+        if (monthTo != null) {
+            sql.append(" AND month <= :monthTo");
+            params.addValue("monthTo", monthTo);
+        }
+        sql.append(" GROUP BY month ORDER BY month");
+        
+        return jdbcTemplate.query(sql.toString(), params, MONTHLY_TOTALS_MAPPER);
+    }
+    
+    /**
+     * Recompute the rollup from paymentitem, for one user or all users.
+     * Must run inside a transaction; the table lock is held until commit.
+     *
+     * @param userId user to rebuild, or null for everyone
+     * @return number of rollup rows written
+     */
+    public int rebuild(Long userId) {
+        jdbcTemplate.getJdbcTemplate().execute("LOCK TABLE monthly_rollup IN EXCLUSIVE MODE");
+        
+        if (userId == null) {
+            jdbcTemplate.getJdbcTemplate().update("DELETE FROM monthly_rollup");
+            return jdbcTemplate.getJdbcTemplate().update(REBUILD_SELECT + REBUILD_GROUP_BY);
+        }
+        
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        jdbcTemplate.update("DELETE FROM monthly_rollup WHERE user_id = :userId", params);
+        return jdbcTemplate.update(REBUILD_SELECT + "WHERE p.user_id = :userId" + REBUILD_GROUP_BY, params);
+    }
+}
@@ -0,0 +1,15 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Income and expense totals of one month as read from monthly_rollup.
+ */
+public record MonthlyTotalsRow(
+        LocalDate month,
+        BigDecimal income,
+        BigDecimal expense,
+        long itemCount
+) {
+}
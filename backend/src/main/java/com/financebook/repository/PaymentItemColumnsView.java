@@ -0,0 +1,20 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the payment item fields held by the in-memory analytics columns.
+ */
+public interface PaymentItemColumnsView {
+
+    Long getId();
+
+    LocalDateTime getDate();
+
+    BigDecimal getAmount();
+
+    Long getCategoryId();
+
+    Long getRecipientId();
+}
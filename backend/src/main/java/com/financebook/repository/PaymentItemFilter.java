@@ -0,0 +1,34 @@
+package com.financebook.repository;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filter criteria for payment item listings on the read model.
+ * Null or false fields are not applied.
+ */
+@Getter
+@Builder
+public class PaymentItemFilter {
+
+    private final Long userId;
+    private final boolean expenseOnly;
+    private final boolean incomeOnly;
+
+    // Root category ids; descendants are expanded in SQL
+    private final Set<Long> categoryIds;
+
+    // Half-open date range [dateFrom, dateUntil)
+    private final LocalDateTime dateFrom;
+    private final LocalDateTime dateUntil;
+
+    // Inclusive range on the signed amount
+    private final BigDecimal minAmount;
+    private final BigDecimal maxAmount;
+
+    private final Long recipientId;
+}
@@ -0,0 +1,256 @@
+package com.financebook.repository;
+
+import com.financebook.util.CursorCodec;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read model for payment item listings.
+ *
+ * Selects flat rows straight from paymentitem, recipient, transactionfeerecord
+ * and paymentitemcategorylink in a single statement, one row per item, without
+ * hydrating managed entities. Writes keep going through {@link PaymentItemRepository}.
+ *
+ * All filters are evaluated in SQL; the (user_id, date DESC, id DESC) index
+ * serves both the ordering and date-range restrictions.
+ */
+@Repository
+public class PaymentItemReadRepository {
+
+    // Rows fetched per JDBC round trip when streaming
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String ROW_COLUMNS =
+            "SELECT p.id, p.amount, p.date, p.periodic, p.description, " +
+            "       p.invoice_path, p.product_image_path, " +
+            "       p.recipient_id, r.name AS recipient_name, r.address AS recipient_address, " +
+            "       p.standard_category_id, f.fee_amount, " +
+            "       ARRAY(SELECT l.category_id FROM paymentitemcategorylink l " +
+            "             WHERE l.payment_item_id = p.id) AS category_ids ";
+
+    private static final String ROW_JOINS =
+            "LEFT JOIN recipient r ON r.id = p.recipient_id " +
+            "LEFT JOIN transactionfeerecord f ON f.payment_item_id = p.id ";
+
+    private static final String SELECT_ROWS = ROW_COLUMNS + "FROM paymentitem p " + ROW_JOINS;
+
+    private static final String ORDER_BY = " ORDER BY p.date DESC, p.id DESC";
+
+    // Candidate items are collected through the GIN indexes on both tables,
+    // then joined once and ranked over the combined description and recipient name
+    private static final String SEARCH_ROWS =
+            "WITH query AS (SELECT websearch_to_tsquery('simple', :q) AS q), " +
+            "matches AS (" +
+            "  SELECT p.id FROM paymentitem p, query " +
+            "  WHERE p.user_id = :userId AND p.search_vector @@ query.q " +
+            "  UNION " +
+            "  SELECT p.id FROM recipient r " +
+            "  JOIN paymentitem p ON p.recipient_id = r.id, query " +
+            "  WHERE r.user_id = :userId AND p.user_id = :userId AND r.search_vector @@ query.q" +
+            ") " +
+            ROW_COLUMNS +
+            "FROM matches m " +
+            "JOIN paymentitem p ON p.id = m.id " +
+            ROW_JOINS +
+            "CROSS JOIN query " +
+            "ORDER BY ts_rank(p.search_vector || coalesce(r.search_vector, ''::tsvector), query.q) DESC, " +
+            "         p.date DESC, p.id DESC " +
+            "LIMIT :limit OFFSET :offset";
+
+    private static final RowMapper<PaymentItemRow> ROW_MAPPER = (rs, rowNum) -> mapRow(rs);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    public PaymentItemReadRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        // A fetch size inside a transaction makes the PostgreSQL driver
+        // read through a server-side cursor instead of buffering all rows
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(STREAM_FETCH_SIZE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Find all rows matching the filter, newest first.
+     */
+    public List<PaymentItemRow> findAll(PaymentItemFilter filter) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = buildCategoryTree(filter, params) + SELECT_ROWS + buildWhere(filter, null, params) + ORDER_BY;
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+
+    /**
+     * Find one keyset page of rows strictly after the given cursor.
+     *
+     * @param filter filter criteria
+     * @param after  position of the last item of the previous page (null for the first page)
+     * @param limit  maximum number of rows
+     */
+    public List<PaymentItemRow> findPage(PaymentItemFilter filter, CursorCodec.Cursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = buildCategoryTree(filter, params) + SELECT_ROWS + buildWhere(filter, after, params)
+                + ORDER_BY + " LIMIT :limit";
+        params.addValue("limit", limit);
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+
+    /**
+     * Stream all rows matching the filter, newest first, to the consumer.
+     * Must run inside a transaction for the cursor-based fetch to take effect.
+     */
+    public void stream(PaymentItemFilter filter, Consumer<PaymentItemRow> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = buildCategoryTree(filter, params) + SELECT_ROWS + buildWhere(filter, null, params) + ORDER_BY;
+        streamingJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    /**
+     * Find all of the user's rows written after the given data version, by id.
+     */
+    public List<PaymentItemRow> findModifiedSince(Long userId, long since) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("since", since);
+        String sql = SELECT_ROWS +
+                "WHERE p.user_id = :userId AND p.last_modified_version > :since ORDER BY p.id";
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+
+    /**
+     * Full-text search over item descriptions and recipient names,
+     * most relevant first. The query uses web search syntax
+     * (quoted phrases, OR, leading minus for exclusion).
+     *
+     * @param userId owner of the items
+     * @param query  search terms as entered by the user
+     * @param offset number of ranked rows to skip
+     * @param limit  maximum number of rows
+     */
+    public List<PaymentItemRow> search(Long userId, String query, int offset, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("q", query)
+                .addValue("offset", offset)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(SEARCH_ROWS, params, ROW_MAPPER);
+    }
+
+    /**
+     * Build a recursive CTE that expands the filter's category ids to all of
+     * their descendants inside the database, or an empty string if no
+     * category filter is set. UNION (not UNION ALL) also guards against cycles.
+     */
+    private String buildCategoryTree(PaymentItemFilter filter, MapSqlParameterSource params) {
+        if (!hasCategoryFilter(filter)) {
+            return "";
+        }
+
+        params.addValue("categoryIds", filter.getCategoryIds());
+
+        return "WITH RECURSIVE category_tree AS (" +
+                "  SELECT c.id FROM category c " +
+                "  WHERE c.user_id = :userId AND c.id IN (:categoryIds) " +
+                "  UNION " +
+                "  SELECT c.id FROM category c JOIN category_tree t ON c.parent_id = t.id" +
+                ") ";
+    }
+
+    private static boolean hasCategoryFilter(PaymentItemFilter filter) {
+        return filter.getCategoryIds() != null && !filter.getCategoryIds().isEmpty();
+    }
+
+    /**
+     * Build the WHERE clause, adding only the predicates that are in use.
+     */
+    private String buildWhere(PaymentItemFilter filter, CursorCodec.Cursor after, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder("WHERE p.user_id = :userId");
+        params.addValue("userId", filter.getUserId());
+
+        if (filter.isExpenseOnly()) {
+            where.append(" AND p.amount < 0");
+        } else if (filter.isIncomeOnly()) {
+            where.append(" AND p.amount >= 0");
+        }
+
+        if (hasCategoryFilter(filter)) {
+            where.append(" AND EXISTS (SELECT 1 FROM paymentitemcategorylink fl " +
+                    "JOIN category_tree t ON t.id = fl.category_id " +
+                    "WHERE fl.payment_item_id = p.id)");
+        }
+
+        if (filter.getDateFrom() != null) {
+            where.append(" AND p.date >= :dateFrom");
+            params.addValue("dateFrom", filter.getDateFrom());
+        }
+
+        if (filter.getDateUntil() != null) {
+            where.append(" AND p.date < :dateUntil");
+            params.addValue("dateUntil", filter.getDateUntil());
+        }
+
+        if (filter.getMinAmount() != null) {
+            where.append(" AND p.amount >= :minAmount");
+            params.addValue("minAmount", filter.getMinAmount());
+        }
+
+        if (filter.getMaxAmount() != null) {
+            where.append(" AND p.amount <= :maxAmount");
+            params.addValue("maxAmount", filter.getMaxAmount());
+        }
+
+        if (filter.getRecipientId() != null) {
+            where.append(" AND p.recipient_id = :recipientId");
+            params.addValue("recipientId", filter.getRecipientId());
+        }
+
+        if (after != null) {
+            where.append(" AND (p.date, p.id) < (:cursorDate, :cursorId)");
+            params.addValue("cursorDate", after.date());
+            params.addValue("cursorId", after.id());
+        }
+
+        return where.toString();
+    }
+
+    private static PaymentItemRow mapRow(ResultSet rs) throws SQLException {
+        return new PaymentItemRow(
+                rs.getLong("id"),
+                rs.getBigDecimal("amount"),
+                rs.getObject("date", LocalDateTime.class),
+                rs.getBoolean("periodic"),
+                rs.getString("description"),
+                rs.getString("invoice_path"),
+                rs.getString("product_image_path"),
+                rs.getObject("recipient_id", Long.class),
+                rs.getString("recipient_name"),
+                rs.getString("recipient_address"),
+                rs.getObject("standard_category_id", Long.class),
+                rs.getObject("fee_amount", BigDecimal.class),
+                toLongList(rs.getArray("category_ids")));
+    }
+
+    private static List<Long> toLongList(Array array) throws SQLException {
+        if (array == null) {
+            return Collections.emptyList();
+        }
+        Long[] values = (Long[]) array.getArray();
+        return Arrays.asList(values);
+    }
+}
@@ -9,59 +9,30 @@ import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 /**
  * Repository for PaymentItem entity operations.
- * Supports filtering by user, amount type (income/expense), and categories.
+ * Listings served by the API read from {@link PaymentItemReadRepository}.
  */
 @Repository
 public interface PaymentItemRepository extends JpaRepository<PaymentItem, Long> {
 
-    List<PaymentItem> findByUserIdOrderByDateDesc(Long userId);
-
-    @Query("SELECT p FROM PaymentItem p WHERE p.user.id = :userId AND p.amount < 0 ORDER BY p.date DESC")
-    List<PaymentItem> findExpensesByUserIdOrderByDateDesc(@Param("userId") Long userId);
-
-    @Query("SELECT p FROM PaymentItem p WHERE p.user.id = :userId AND p.amount >= 0 ORDER BY p.date DESC")
-    List<PaymentItem> findIncomesByUserIdOrderByDateDesc(@Param("userId") Long userId);
-
-    @Query("SELECT DISTINCT p FROM PaymentItem p " +
-            "JOIN p.categories c " +
-            "WHERE p.user.id = :userId AND c.id IN :categoryIds " +
-            "ORDER BY p.date DESC")
-    List<PaymentItem> findByUserIdAndCategoryIdsOrderByDateDesc(
-            @Param("userId") Long userId,
-            @Param("categoryIds") Set<Long> categoryIds);
-
-    @Query("SELECT DISTINCT p FROM PaymentItem p " +
-            "JOIN p.categories c " +
-            "WHERE p.user.id = :userId AND c.id IN :categoryIds " +
-            "AND p.amount < 0 " +
-            "ORDER BY p.date DESC")
-    List<PaymentItem> findExpensesByUserIdAndCategoryIdsOrderByDateDesc(
-            @Param("userId") Long userId,
-            @Param("categoryIds") Set<Long> categoryIds);
-
-    @Query("SELECT DISTINCT p FROM PaymentItem p " +
-            "JOIN p.categories c " +
-            "WHERE p.user.id = :userId AND c.id IN :categoryIds " +
-            "AND p.amount >= 0 " +
-            "ORDER BY p.date DESC")
-    List<PaymentItem> findIncomesByUserIdAndCategoryIdsOrderByDateDesc(
-            @Param("userId") Long userId,
-            @Param("categoryIds") Set<Long> categoryIds);
-
     Optional<PaymentItem> findByIdAndUserId(Long id, Long userId);
 
     @Query("SELECT COUNT(p) FROM PaymentItem p WHERE p.user.id = :userId")
     long countByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT p FROM PaymentItem p WHERE p.user.id = :userId " +
+    @Query("SELECT COUNT(p) FROM PaymentItem p WHERE p.user.id = :userId " +
             "AND ABS(p.amount) >= :lowerBound " +
             "AND (:upperBound IS NULL OR ABS(p.amount) < :upperBound)")
-    List<PaymentItem> findByUserIdAndAbsAmountBetween(
+    long countByUserIdAndAbsAmountBetween(
             @Param("userId") Long userId,
             @Param("lowerBound") BigDecimal lowerBound,
             @Param("upperBound") BigDecimal upperBound);
+
+    @Query("SELECT p.id AS id, p.date AS date, p.amount AS amount, " +
+            "c.id AS categoryId, r.id AS recipientId " +
+            "FROM PaymentItem p LEFT JOIN p.standardCategory c LEFT JOIN p.recipient r " +
+            "WHERE p.user.id = :userId")
+    List<PaymentItemColumnsView> findColumnsByUserId(@Param("userId") Long userId);
 }
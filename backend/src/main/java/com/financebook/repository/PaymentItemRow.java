@@ -0,0 +1,27 @@
+package com.financebook.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Flat, unmanaged row of the payment item read model.
+ * Combines paymentitem, recipient, transactionfeerecord and the
+ * item's category links as read by {@link PaymentItemReadRepository}.
+ */
+public record PaymentItemRow(
+        Long id,
+        BigDecimal amount,
+        LocalDateTime date,
+        Boolean periodic,
+        String description,
+        String invoicePath,
+        String productImagePath,
+        Long recipientId,
+        String recipientName,
+        String recipientAddress,
+        Long standardCategoryId,
+        BigDecimal transactionFee,
+        List<Long> categoryIds
+) {
+}
@@ -2,6 +2,8 @@ package com.financebook.repository;
 
 import com.financebook.entity.Recipient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,4 +20,8 @@ public interface RecipientRepository extends JpaRepository<Recipient, Long> {
     Optional<Recipient> findByUserIdAndName(Long userId, String name);
     
     Optional<Recipient> findByIdAndUserId(Long id, Long userId);
+    
+    @Query(value = "SELECT * FROM recipient WHERE user_id = :userId AND last_modified_version > :since ORDER BY id",
+            nativeQuery = true)
+    List<Recipient> findModifiedSince(@Param("userId") Long userId, @Param("since") long since);
 }
@@ -0,0 +1,92 @@
+package com.financebook.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Aggregations over payment items for the statistics views.
+ *
+ * Items are summed per standard category in a single pass over the
+ * (user_id, date) covering index, then rolled up through the category
+ * hierarchy, so only one row per non-empty category leaves the database.
+ */
+@Repository
+public class StatisticsRepository {
+    
+    private static final RowMapper<CategoryTotalsRow> CATEGORY_TOTALS_MAPPER = (rs, rowNum) -> new CategoryTotalsRow(
+            rs.getObject("category_id", Long.class),
+            rs.getString("name"),
+            rs.getObject("parent_id", Long.class),
+            rs.getBigDecimal("own_income"),
+            rs.getBigDecimal("own_expense"),
+            rs.getBigDecimal("total_income"),
+            rs.getBigDecimal("total_expense"),
+            rs.getLong("item_count"));
+    
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public StatisticsRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+    
+    /**
+     * Income and expense totals per category, rolled up to all ancestors.
+     * Expenses are reported as positive sums.
+     *
+     * @param userId    owner of the items
+     * @param dateFrom  inclusive lower bound, or null
+     * @param dateUntil exclusive upper bound, or null
+     */
+    public List<CategoryTotalsRow> findCategoryTotals(Long userId, LocalDateTime dateFrom, LocalDateTime dateUntil) {
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        
+        StringBuilder where = new StringBuilder("WHERE p.user_id = :userId");
+        if (dateFrom != null) {
+            where.append(" AND p.date >= :dateFrom");
+            params.addValue("dateFrom", dateFrom);
+        }
+        if (dateUntil != null) {
+            where.append(" AND p.date < :dateUntil");
+            params.addValue("dateUntil", dateUntil);
+        }
+        
+        String sql = "WITH RECURSIVE direct AS (" +
+                "  SELECT p.standard_category_id AS category_id, " +
+                "         SUM(CASE WHEN p.amount >= 0 THEN p.amount ELSE 0 END) AS income, " +
+                "         SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END) AS expense, " +
+                "         COUNT(*) AS item_count " +
+                "  FROM paymentitem p " + where +
+                "  GROUP BY p.standard_category_id" +
+                "), " +
+                // Every category paired with itself and each of its ancestors
+                "ancestry AS (" +
+                "  SELECT c.id AS category_id, c.id AS ancestor_id FROM category c WHERE c.user_id = :userId " +
+                "  UNION " +
+                "  SELECT a.category_id, c.parent_id FROM ancestry a " +
+                "  JOIN category c ON c.id = a.ancestor_id WHERE c.parent_id IS NOT NULL" +
+                ") " +
+                "SELECT c.id AS category_id, c.name, c.parent_id, " +
+                "       COALESCE(SUM(d.income) FILTER (WHERE a.category_id = c.id), 0) AS own_income, " +
+                "       COALESCE(SUM(d.expense) FILTER (WHERE a.category_id = c.id), 0) AS own_expense, " +
+                "       SUM(d.income) AS total_income, " +
+                "       SUM(d.expense) AS total_expense, " +
+                "       SUM(d.item_count) AS item_count " +
+                "FROM category c " +
+                "JOIN ancestry a ON a.ancestor_id = c.id " +
+                "JOIN direct d ON d.category_id = a.category_id " +
+                "WHERE c.user_id = :userId " +
+                "GROUP BY c.id, c.name, c.parent_id " +
+                "UNION ALL " +
+                "SELECT NULL, NULL, NULL, d.income, d.expense, d.income, d.expense, d.item_count " +
+                "FROM direct d WHERE d.category_id IS NULL " +
+                "ORDER BY total_expense DESC, total_income DESC";
+        
+        return jdbcTemplate.query(sql, params, CATEGORY_TOTALS_MAPPER);
+    }
+}
@@ -0,0 +1,22 @@
+package com.financebook.repository;
+
+/**
+ * Entity types tracked for delta sync, with the table that carries
+ * their last_modified_version column.
+ */
+public enum SyncEntityType {
+    
+    PAYMENT_ITEM("paymentitem"),
+    CATEGORY("category"),
+    RECIPIENT("recipient");
+    
+    private final String tableName;
+    
+    SyncEntityType(String tableName) {
+        this.tableName = tableName;
+    }
+    
+    public String getTableName() {
+        return tableName;
+    }
+}
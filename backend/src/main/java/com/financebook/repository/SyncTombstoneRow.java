@@ -0,0 +1,11 @@
+package com.financebook.repository;
+
+/**
+ * A deleted row as recorded in sync_tombstone.
+ */
+public record SyncTombstoneRow(
+        SyncEntityType entityType,
+        Long entityId,
+        Long version
+) {
+}
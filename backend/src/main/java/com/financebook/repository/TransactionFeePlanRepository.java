@@ -2,8 +2,11 @@ package com.financebook.repository;
 
 import com.financebook.entity.TransactionFeePlan;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -13,6 +16,12 @@ import java.util.Optional;
 public interface TransactionFeePlanRepository extends JpaRepository<TransactionFeePlan, Long> {
     
     Optional<TransactionFeePlan> findByUserId(Long userId);
+
+    /**
+     * Last modification time of the user's plan; cheap check for cached compiled plans.
+     */
+    @Query("SELECT p.updatedAt FROM TransactionFeePlan p WHERE p.user.id = :userId")
+    Optional<LocalDateTime> findUpdatedAtByUserId(@Param("userId") Long userId);
     
     boolean existsByUserId(Long userId);
 }
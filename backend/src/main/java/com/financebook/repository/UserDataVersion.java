@@ -0,0 +1,11 @@
+package com.financebook.repository;
+
+/**
+ * Projection of a user's id and current data version.
+ */
+public interface UserDataVersion {
+
+    Long getUserId();
+
+    Long getDataVersion();
+}
@@ -2,6 +2,8 @@ package com.financebook.repository;
 
 import com.financebook.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -20,4 +22,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findByIsActiveTrue();
     
     List<User> findByIsAdminTrue();
+    
+    @Query(value = "SELECT id AS \"userId\", data_version AS \"dataVersion\" FROM \"user\" WHERE username = :username",
+            nativeQuery = true)
+    Optional<UserDataVersion> findDataVersionByUsername(@Param("username") String username);
 }
@@ -36,6 +36,22 @@ public class AdminService {
     private final CategoryRepository categoryRepository;
     private final PasswordEncoder passwordEncoder;
     
+    /**
+     * Load the user and make sure they are an admin.
+     * Guards admin-only operations of other services.
+     */
+    @Transactional(readOnly = true)
+    public User requireAdmin(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        
+        if (!Boolean.TRUE.equals(user.getIsAdmin())) {
+            throw new UnauthorizedException("Admin access required");
+        }
+        
+        return user;
+    }
+    
     /**
      * Get all users (admin only).
      * Mirrors Python's admin_list_users endpoint.
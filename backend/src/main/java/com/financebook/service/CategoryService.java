@@ -11,6 +11,7 @@ import com.financebook.exception.UnauthorizedException;
 import com.financebook.exception.ValidationException;
 import com.financebook.repository.CategoryRepository;
 import com.financebook.repository.CategoryTypeRepository;
+import com.financebook.repository.SyncEntityType;
 import com.financebook.repository.UserRepository;
 import com.financebook.util.Constants;
 import com.financebook.util.DtoMapper;
@@ -20,10 +21,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 /**
  * Category service for managing hierarchical category trees.
@@ -37,6 +40,7 @@ public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryTypeRepository categoryTypeRepository;
     private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
     
     /**
      * Create a new category with normalized name.
@@ -81,6 +85,7 @@ public class CategoryService {
                 .build();
         
         category = categoryRepository.save(category);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.CATEGORY, category.getId());
         
         return DtoMapper.toCategoryReadResponse(category);
     }
@@ -92,7 +97,8 @@ public class CategoryService {
     public List<CategoryReadResponse> getAllCategories(String username) {
         User user = getUserByUsername(username);
         List<Category> categories = categoryRepository.findByUserId(user.getId());
-        return DtoMapper.toCategoryReadResponseList(categories);
+        return DtoMapper.toCategoryReadResponseList(
+                categories, DtoMapper.indexChildrenByParentId(categories));
     }
     
     /**
@@ -139,58 +145,25 @@ public class CategoryService {
             throw new UnauthorizedException("Not authorized to access this category");
         }
         
-        // Breadth-first traversal to collect all descendants
+        // Load the whole subtree with one recursive query, then walk it breadth-first in memory
+        List<Category> subtree = new ArrayList<>(categoryRepository.findAllById(
+                categoryRepository.findSelfAndDescendantIds(List.of(categoryId), user.getId())));
+        subtree.sort(Comparator.comparing(Category::getId));
+        Map<Long, List<Category>> childrenByParentId = DtoMapper.indexChildrenByParentId(subtree);
+        
         List<Category> descendants = new ArrayList<>();
-        List<Long> queue = new ArrayList<>();
+        Deque<Long> queue = new ArrayDeque<>();
         queue.add(categoryId);
         
         while (!queue.isEmpty()) {
-            Long currentId = queue.remove(0);
-            List<Category> children = categoryRepository.findByParentId(currentId);
-            
-            for (Category child : children) {
+            Long currentId = queue.poll();
+            for (Category child : childrenByParentId.getOrDefault(currentId, List.of())) {
                 descendants.add(child);
                 queue.add(child.getId());
             }
         }
         
-        return DtoMapper.toCategoryReadResponseList(descendants);
-    }
-    
-    /**
-     * Get all descendant IDs (including the root).
-     * Used for filtering payment items by category.
-     * Mirrors Python's category expansion logic.
-     */
-    @Transactional(readOnly = true)
-    public Set<Long> expandCategoryIds(Set<Long> categoryIds, Long userId) {
-        Set<Long> expandedIds = new HashSet<>(categoryIds);
-        
-        for (Long categoryId : categoryIds) {
-            gatherDescendantIds(categoryId, expandedIds);
-        }
-        
-        return expandedIds;
-    }
-    
-    /**
-     * Recursively gather all descendant IDs.
-     */
-    private void gatherDescendantIds(Long rootId, Set<Long> expandedIds) {
-        List<Long> queue = new ArrayList<>();
-        queue.add(rootId);
-        
-        while (!queue.isEmpty()) {
-            Long currentId = queue.remove(0);
-            List<Category> children = categoryRepository.findByParentId(currentId);
-            
-            for (Category child : children) {
-                if (!expandedIds.contains(child.getId())) {
-                    expandedIds.add(child.getId());
-                    queue.add(child.getId());
-                }
-            }
-        }
+        return DtoMapper.toCategoryReadResponseList(descendants, childrenByParentId);
     }
     
     /**
@@ -251,6 +224,7 @@ public class CategoryService {
         }
         
         category = categoryRepository.save(category);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.CATEGORY, category.getId());
         
         return DtoMapper.toCategoryReadResponse(category);
     }
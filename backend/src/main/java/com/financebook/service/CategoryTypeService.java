@@ -25,6 +25,7 @@ public class CategoryTypeService {
     
     private final CategoryTypeRepository categoryTypeRepository;
     private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
     
     /**
      * Create a new category type.
@@ -43,6 +44,7 @@ public class CategoryTypeService {
                 .build();
         
         categoryType = categoryTypeRepository.save(categoryType);
+        dataVersionService.bump(user.getId());
         
         return DtoMapper.toCategoryTypeReadResponse(categoryType);
     }
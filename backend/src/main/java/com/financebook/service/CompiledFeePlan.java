@@ -0,0 +1,226 @@
+package com.financebook.service;
+
+import com.financebook.entity.TransactionFeePlan;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * A {@link TransactionFeePlan} parsed once into primitive arrays.
+ *
+ * Table mode intervals are found by binary search over the sorted lower
+ * bounds and their regression polynomials are evaluated with Horner's rule.
+ * The cents variants of the fee methods use {@link FeeCents} and allocate
+ * nothing; the BigDecimal ones serve amounts with fractions of a cent.
+ * Formula mode plans hold their {@link FeeFormula}, compiled once.
+ * Instances are immutable and identified by the plan's updatedAt.
+ */
+public final class CompiledFeePlan {
+
+    private static final double DEFAULT_MAX_FEE = 0.1;
+
+    private final LocalDateTime updatedAt;
+    private final String mode;
+    // Formula mode; null when the plan has no formula text
+    private final FeeFormula formula;
+
+    // Table mode: interval i is [lowerBounds[i], lowerBounds[i + 1]), the last one open ended
+    private final double[] lowerBounds;
+    private final BigDecimal[] lowerAmounts;
+    private final double[] maxFees;
+    // Null for intervals without fee data
+    private final double[][] coefficients;
+
+    private CompiledFeePlan(LocalDateTime updatedAt, String mode, FeeFormula formula,
+                            double[] lowerBounds, double[] maxFees, double[][] coefficients) {
+        this.updatedAt = updatedAt;
+        this.mode = mode;
+        this.formula = formula;
+        this.lowerBounds = lowerBounds;
+        this.maxFees = maxFees;
+        this.coefficients = coefficients;
+        this.lowerAmounts = new BigDecimal[lowerBounds.length];
+        for (int i = 0; i < lowerBounds.length; i++) {
+            lowerAmounts[i] = BigDecimal.valueOf(lowerBounds[i]);
+        }
+    }
+
+    /**
+     * Parse the plan's JSON columns.
+     *
+     * Interval data is keyed by the integer part of each lower bound, as
+     * written by the admin panel.
+     *
+     * @throws IllegalArgumentException if a formula plan's formula is invalid
+     */
+    public static CompiledFeePlan compile(TransactionFeePlan plan, ObjectMapper objectMapper)
+            throws JsonProcessingException {
+        if (!"table".equals(plan.getMode())) {
+            String text = plan.getFormulaText();
+            FeeFormula formula = "formula".equals(plan.getMode()) && text != null && !text.isEmpty()
+                    ? FeeFormula.compile(text)
+                    : null;
+            return new CompiledFeePlan(plan.getUpdatedAt(), plan.getMode(), formula,
+                    new double[0], new double[0], new double[0][]);
+        }
+
+        JsonNode table = objectMapper.readTree(plan.getAmountTableJson());
+        JsonNode intervalData = objectMapper.readTree(plan.getIntervalDataJson());
+
+        double[] lowerBounds = new double[table.size()];
+        for (int i = 0; i < lowerBounds.length; i++) {
+            lowerBounds[i] = table.get(i).asDouble();
+        }
+        Arrays.sort(lowerBounds);
+
+        // Default table [0] with no interval data charges nothing
+        if (lowerBounds.length <= 1 && intervalData.isEmpty()) {
+            return new CompiledFeePlan(plan.getUpdatedAt(), plan.getMode(), null,
+                    new double[0], new double[0], new double[0][]);
+        }
+
+        double[] maxFees = new double[lowerBounds.length];
+        double[][] coefficients = new double[lowerBounds.length][];
+        for (int i = 0; i < lowerBounds.length; i++) {
+            JsonNode data = intervalData.get(String.valueOf((int) lowerBounds[i]));
+            if (data == null || data.isEmpty() || !data.path("coefficients").isArray()) {
+                continue;
+            }
+            maxFees[i] = data.path("maxFee").asDouble(DEFAULT_MAX_FEE);
+
+            JsonNode values = data.get("coefficients");
+            coefficients[i] = new double[values.size()];
+            for (int k = 0; k < values.size(); k++) {
+                coefficients[i][k] = values.get(k).asDouble();
+            }
+        }
+
+        return new CompiledFeePlan(plan.getUpdatedAt(), plan.getMode(), null, lowerBounds, maxFees, coefficients);
+    }
+
+    /**
+     * A plan that never charges a fee, used when the stored plan cannot be parsed.
+     */
+    public static CompiledFeePlan noFee(TransactionFeePlan plan) {
+        return new CompiledFeePlan(plan.getUpdatedAt(), "none", null,
+                new double[0], new double[0], new double[0][]);
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public FeeFormula getFormula() {
+        return formula;
+    }
+
+    /**
+     * Number of table intervals; 0 for formula plans and plans without fees.
+     */
+    public int intervalCount() {
+        return lowerBounds.length;
+    }
+
+    /**
+     * Index of the table interval containing the amount, or -1 if it lies
+     * below the first bound. With repeated bounds the last one wins.
+     */
+    public int intervalOf(double absAmount) {
+        int low = 0;
+        int high = lowerBounds.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lowerBounds[mid] <= absAmount) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Whether the interval has regression coefficients.
+     */
+    public boolean hasFeeData(int interval) {
+        return coefficients[interval] != null;
+    }
+
+    public BigDecimal lowerBound(int interval) {
+        return lowerAmounts[interval];
+    }
+
+    /**
+     * Upper bound of the interval, or null for the last one.
+     */
+    public BigDecimal upperBound(int interval) {
+        return interval + 1 < lowerAmounts.length ? lowerAmounts[interval + 1] : null;
+    }
+
+    /**
+     * Fee rate of the interval at the given payment frequency,
+     * clamped to [0, maxFee]. A result that is not finite (e.g. an
+     * overflowed coefficient times a zero frequency) gives 0, so such a
+     * plan charges nothing instead of failing the write.
+     */
+    public double feeRate(int interval, double frequency) {
+        double[] c = coefficients[interval];
+        double rate = 0.0;
+        for (int k = c.length - 1; k >= 0; k--) {
+            rate = rate * frequency + c[k];
+        }
+        double clamped = Math.max(0.0, Math.min(rate, maxFees[interval]));
+        return Double.isFinite(clamped) ? clamped : 0.0;
+    }
+
+    /**
+     * Raw table mode fee of an amount in an interval with fee data.
+     */
+    public BigDecimal tableFee(BigDecimal absAmount, int interval, double frequency) {
+        return absAmount.multiply(BigDecimal.valueOf(feeRate(interval, frequency)));
+    }
+
+    /**
+     * Raw formula mode fee; zero without a formula or when the result is
+     * not finite, where Python's safe_eval_formula() would return None.
+     */
+    public BigDecimal formulaFee(BigDecimal absAmount, double frequency) {
+        if (formula == null) {
+            return BigDecimal.ZERO;
+        }
+        double raw = formula.evaluate(absAmount.doubleValue(), frequency);
+        if (!Double.isFinite(raw)) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(Math.abs(raw));
+    }
+
+    /**
+     * Table mode fee of an amount in cents, capped, rounded and thresholded
+     * like {@link FeeEngineService#computeFee}.
+     */
+    public long tableFeeCents(long absCents, int interval, double frequency) {
+        return FeeCents.tableFee(absCents, feeRate(interval, frequency));
+    }
+
+    /**
+     * Formula mode fee of an amount in cents, capped, rounded and thresholded
+     * like {@link FeeEngineService#computeFee}.
+     */
+    public long formulaFeeCents(long absCents, double frequency) {
+        if (formula == null) {
+            return 0;
+        }
+        return FeeCents.formulaFee(absCents, formula.evaluate(absCents / 100.0, frequency));
+    }
+}
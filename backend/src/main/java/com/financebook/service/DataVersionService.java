@@ -0,0 +1,124 @@
+package com.financebook.service;
+
+import com.financebook.repository.DataVersionRepository;
+import com.financebook.repository.SyncEntityType;
+import com.financebook.repository.UserDataVersion;
+import com.financebook.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Per-user data version for conditional list requests and delta sync.
+ *
+ * Every write to a user's payment items, categories, category types or
+ * recipients bumps the version inside the writing transaction, so a reader
+ * that sees the new data also sees the new version. Changed rows are stamped
+ * with that version and deleted rows leave a tombstone. Each write also
+ * publishes a {@link LedgerChangeEvent}, delivered to listeners after commit.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataVersionService {
+    
+    private final UserRepository userRepository;
+    private final DataVersionRepository dataVersionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Increment the user's data version without stamping any rows.
+     * Must be called from within the write's transaction.
+     *
+     * @return the new version
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long bump(Long userId) {
+        long version = dataVersionRepository.incrementDataVersion(userId);
+        eventPublisher.publishEvent(new LedgerChangeEvent(userId, version, null, false, List.of()));
+        return version;
+    }
+    
+    /**
+     * Record a created or updated row.
+     * Must be called from within the write's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChange(Long userId, SyncEntityType type, Long id) {
+        recordChanges(userId, type, List.of(id));
+    }
+    
+    /**
+     * Record created or updated rows under a single new version.
+     * Does nothing if no ids are given.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordChanges(Long userId, SyncEntityType type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        
+        long version = dataVersionRepository.incrementDataVersion(userId);
+        dataVersionRepository.stamp(type, ids, version);
+        eventPublisher.publishEvent(new LedgerChangeEvent(userId, version, type, false, List.copyOf(ids)));
+    }
+    
+    /**
+     * Increment the user's data version for rows the caller stamps itself,
+     * as set-based inserts do. Follow up with {@link #publishChanges}.
+     * Must be called from within the write's transaction.
+     *
+     * @return the new version
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long reserveVersion(Long userId) {
+        return dataVersionRepository.incrementDataVersion(userId);
+    }
+    
+    /**
+     * Announce rows stamped with a version from {@link #reserveVersion}.
+     * Does nothing if no ids are given.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishChanges(Long userId, long version, SyncEntityType type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new LedgerChangeEvent(userId, version, type, false, List.copyOf(ids)));
+    }
+    
+    /**
+     * Record a deleted row as a tombstone.
+     * Must be called from within the write's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletion(Long userId, SyncEntityType type, Long id) {
+        long version = dataVersionRepository.incrementDataVersion(userId);
+        dataVersionRepository.insertTombstone(userId, type, id, version);
+        eventPublisher.publishEvent(new LedgerChangeEvent(userId, version, type, true, List.of(id)));
+    }
+    
+    /**
+     * Current data version of the user, or empty if the user does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Optional<UserDataVersion> currentVersion(String username) {
+        return userRepository.findDataVersionByUsername(username);
+    }
+    
+    /**
+     * Strong ETag for the user's current data version.
+     * Includes the user id so a shared browser cache never matches
+     * another user's response for the same URL.
+     */
+    public static String toEtag(UserDataVersion version) {
+        return "\"" + version.getUserId() + "-" + version.getDataVersion() + "\"";
+    }
+}
@@ -0,0 +1,101 @@
+package com.financebook.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fee arithmetic on amounts in long cents.
+ *
+ * Results are identical to the BigDecimal path in {@link FeeEngineService}:
+ * a rate or formula result r enters that path as BigDecimal.valueOf(r), the
+ * fee is capped at the amount, rounded HALF_UP to cents and dropped below
+ * 0.01. Here the product is formed in double, which is within two ulps of
+ * the exact decimal product, and rounded directly; only values within a few
+ * ulps of a half cent are handed to BigDecimal to settle the tie. Capping
+ * after rounding gives the same result because the amount already has
+ * two decimals.
+ */
+public final class FeeCents {
+
+    // Beyond this, doubles no longer resolve fractions of a cent
+    private static final double MAX_EXACT_CENTS = 0x1p52;
+
+    // Distance from a half cent, in ulps, below which the double result is not trusted
+    private static final double TIE_MARGIN_ULPS = 4.0;
+
+    private FeeCents() {
+    }
+
+    /**
+     * Table mode fee of an amount at the given fee rate;
+     * non-finite rates charge nothing.
+     */
+    public static long tableFee(long absCents, double rate) {
+        if (!Double.isFinite(rate)) {
+            return 0;
+        }
+        if (rate >= 1.0) {
+            // Capped at the amount anyway
+            return finish(absCents, absCents);
+        }
+
+        long fee = roundHalfUp(absCents * rate);
+        if (fee < 0) {
+            fee = BigDecimal.valueOf(absCents)
+                    .multiply(BigDecimal.valueOf(rate))
+                    .setScale(0, RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+        return finish(fee, absCents);
+    }
+
+    /**
+     * Formula mode fee of an amount given the formula's result;
+     * non-finite results charge nothing.
+     */
+    public static long formulaFee(long absCents, double raw) {
+        if (!Double.isFinite(raw)) {
+            return 0;
+        }
+        double abs = Math.abs(raw);
+        if (abs >= absCents / 100.0 + 1) {
+            // Capped at the amount anyway
+            return finish(absCents, absCents);
+        }
+
+        long fee = roundHalfUp(abs * 100);
+        if (fee < 0) {
+            fee = BigDecimal.valueOf(abs)
+                    .setScale(2, RoundingMode.HALF_UP)
+                    .movePointRight(2)
+                    .longValueExact();
+        }
+        return finish(fee, absCents);
+    }
+
+    /**
+     * Amount after subtracting the fee; mirrors applyFeeToAmount().
+     */
+    public static long applyFee(long amountCents, long feeCents) {
+        return amountCents - feeCents;
+    }
+
+    // HALF_UP to whole cents, or -1 when the value is too close to a tie or too large
+    private static long roundHalfUp(double cents) {
+        if (!(cents >= 0 && cents < MAX_EXACT_CENTS)) {
+            return -1;
+        }
+        double whole = Math.floor(cents);
+        double fraction = cents - whole;
+        if (Math.abs(fraction - 0.5) <= TIE_MARGIN_ULPS * Math.ulp(cents)) {
+            return -1;
+        }
+        return (long) whole + (fraction > 0.5 ? 1 : 0);
+    }
+
+    // Cap at 100% of the amount; fees below one cent are not charged
+    private static long finish(long feeCents, long absCents) {
+        long fee = Math.min(feeCents, absCents);
+        return fee < 1 ? 0 : fee;
+    }
+}
@@ -7,7 +7,7 @@ import com.financebook.exception.ValidationException;
 import com.financebook.repository.PaymentItemRepository;
 import com.financebook.repository.TransactionFeePlanRepository;
 import com.financebook.repository.TransactionFeeRecordRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +18,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -41,10 +44,26 @@ public class FeeEngineService {
     private final TransactionFeePlanRepository feePlanRepository;
     private final TransactionFeeRecordRepository feeRecordRepository;
     private final PaymentItemRepository paymentItemRepository;
+    private final LedgerAnalyticsService ledgerAnalyticsService;
     private final ObjectMapper objectMapper;
 
     private static final BigDecimal MIN_FEE_THRESHOLD = new BigDecimal("0.01");
 
+    // Integer digits up to which amounts take the cents path
+    private static final int MAX_CENTS_PATH_DIGITS = 13;
+
+    // Compiled plans are kept for this many recently active users
+    private static final int MAX_COMPILED_PLANS = 10_000;
+
+    // Compiled plans by user id, least recently used evicted first
+    private final Map<Long, CompiledFeePlan> compiledPlans = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, CompiledFeePlan> eldest) {
+                    return size() > MAX_COMPILED_PLANS;
+                }
+            });
+
     /**
      * Compute the transaction fee for a given payment amount.
      * Mirrors Python's compute_fee() function.
@@ -57,11 +76,18 @@ public class FeeEngineService {
         BigDecimal absAmount = amount.abs();
 
         // Load fee plan
-        TransactionFeePlan plan = feePlanRepository.findByUserId(userId).orElse(null);
+        CompiledFeePlan plan = compiledPlanFor(userId);
         if (plan == null) {
             return BigDecimal.ZERO; // No fee plan → no fees
         }
 
+        long absCents = toCents(absAmount);
+        if (absCents >= 0) {
+            long feeCents = computeFeeCents(plan, absCents, userId);
+            return feeCents == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(feeCents, 2);
+        }
+
+        // Fractions of a cent: exact BigDecimal arithmetic
         BigDecimal fee = BigDecimal.ZERO;
 
         if ("formula".equals(plan.getMode())) {
@@ -70,6 +96,53 @@ public class FeeEngineService {
             fee = computeFeeTableMode(plan, absAmount, userId);
         }
 
+        return roundFee(fee, absAmount);
+    }
+
+    /**
+     * Fee of an absolute amount in cents, via {@link FeeCents}.
+     * Gives the same result as the BigDecimal path.
+     */
+    long computeFeeCents(CompiledFeePlan plan, long absCents, Long userId) {
+        if ("formula".equals(plan.getMode())) {
+            if (plan.getFormula() == null) {
+                return 0;
+            }
+            double freq = getPaymentFrequency(userId, BigDecimal.ZERO, null);
+            return plan.formulaFeeCents(absCents, freq);
+        }
+
+        if ("table".equals(plan.getMode())) {
+            int interval = plan.intervalOf(absCents / 100.0);
+            if (interval < 0 || !plan.hasFeeData(interval)) {
+                return 0;
+            }
+            double freq = getPaymentFrequency(userId, plan.lowerBound(interval), plan.upperBound(interval));
+            return plan.tableFeeCents(absCents, interval, freq);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Absolute amount in cents, or -1 if it has fractions of a cent
+     * or is too large for the cents path.
+     */
+    static long toCents(BigDecimal absAmount) {
+        if (absAmount.scale() > 2 && absAmount.stripTrailingZeros().scale() > 2) {
+            return -1;
+        }
+        if (absAmount.precision() - absAmount.scale() > MAX_CENTS_PATH_DIGITS) {
+            return -1;
+        }
+        return absAmount.movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Cap a raw fee at 100% of the absolute amount and round it;
+     * fees below 0.01 after rounding are not charged.
+     */
+    static BigDecimal roundFee(BigDecimal fee, BigDecimal absAmount) {
         // Cap fee at 100% of absolute amount
         if (fee.compareTo(absAmount) > 0) {
             fee = absAmount;
@@ -86,107 +159,75 @@ public class FeeEngineService {
         return fee;
     }
 
+    /**
+     * Compiled fee plan of the user, or null if there is none.
+     * The cached plan is reused while the stored plan's updatedAt is unchanged,
+     * so the JSON columns are only read and parsed after an edit.
+     */
+    CompiledFeePlan compiledPlanFor(Long userId) {
+        LocalDateTime updatedAt = feePlanRepository.findUpdatedAtByUserId(userId).orElse(null);
+        if (updatedAt == null) {
+            compiledPlans.remove(userId);
+            return null;
+        }
+
+        CompiledFeePlan cached = compiledPlans.get(userId);
+        if (cached != null && updatedAt.equals(cached.getUpdatedAt())) {
+            return cached;
+        }
+
+        TransactionFeePlan plan = feePlanRepository.findByUserId(userId).orElse(null);
+        if (plan == null) {
+            compiledPlans.remove(userId);
+            return null;
+        }
+
+        CompiledFeePlan compiled;
+        try {
+            compiled = CompiledFeePlan.compile(plan, objectMapper);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Invalid fee plan {} for user {}, charging no fees until it is fixed", plan.getId(), userId, e);
+            compiled = CompiledFeePlan.noFee(plan);
+        }
+        compiledPlans.put(userId, compiled);
+        return compiled;
+    }
+
     /**
      * Compute fee using formula mode.
      */
-    private BigDecimal computeFeeFormulaMode(TransactionFeePlan plan, BigDecimal absAmount, Long userId) {
-        if (plan.getFormulaText() == null || plan.getFormulaText().isEmpty()) {
+    BigDecimal computeFeeFormulaMode(CompiledFeePlan plan, BigDecimal absAmount, Long userId) {
+        if (plan.getFormula() == null) {
             return BigDecimal.ZERO;
         }
 
         double freq = getPaymentFrequency(userId, BigDecimal.ZERO, null);
 
-        // TODO: Implement safe formula evaluation
-        // For now, return 0 - this would need a proper expression evaluator
-        log.warn("Formula mode not yet fully implemented, returning 0 fee");
-        return BigDecimal.ZERO;
+        return plan.formulaFee(absAmount, freq);
     }
 
     /**
      * Compute fee using table mode with regression.
      * Mirrors Python's table mode logic.
      */
-    private BigDecimal computeFeeTableMode(TransactionFeePlan plan, BigDecimal absAmount, Long userId) {
-        try {
-            List<Double> amountTable = objectMapper.readValue(
-                    plan.getAmountTableJson(),
-                    new TypeReference<List<Double>>() {
-                    });
-
-            Map<String, Map<String, Object>> intervalData = objectMapper.readValue(
-                    plan.getIntervalDataJson(),
-                    new TypeReference<Map<String, Map<String, Object>>>() {
-                    });
-
-            if (amountTable.size() <= 1 && intervalData.isEmpty()) {
-                return BigDecimal.ZERO; // Default table [0] with no interval data
-            }
-
-            // Find which interval the amount falls into
-            String intervalKey = null;
-            double lower = 0.0;
-            Double upper = null;
-
-            for (int i = 0; i < amountTable.size(); i++) {
-                double lo = amountTable.get(i);
-                Double hi = (i + 1 < amountTable.size()) ? amountTable.get(i + 1) : null;
-
-                if (hi == null) {
-                    // Last interval [lo, ∞)
-                    if (absAmount.doubleValue() >= lo) {
-                        intervalKey = String.valueOf((int) lo);
-                        lower = lo;
-                        upper = null;
-                        break;
-                    }
-                } else {
-                    if (absAmount.doubleValue() >= lo && absAmount.doubleValue() < hi) {
-                        intervalKey = String.valueOf((int) lo);
-                        lower = lo;
-                        upper = hi;
-                        break;
-                    }
-                }
-            }
-
-            if (intervalKey == null) {
-                return BigDecimal.ZERO;
-            }
-
-            Map<String, Object> idata = intervalData.get(intervalKey);
-            if (idata == null || idata.isEmpty()) {
-                return BigDecimal.ZERO;
-            }
-
-            double maxFeePct = ((Number) idata.getOrDefault("maxFee", 0.1)).doubleValue();
-
-            @SuppressWarnings("unchecked")
-            List<Double> coefficients = (List<Double>) idata.get("coefficients");
-            if (coefficients == null) {
-                return BigDecimal.ZERO;
-            }
-
-            // Compute payment frequency for this interval
-            double freq = getPaymentFrequency(userId, BigDecimal.valueOf(lower),
-                    upper != null ? BigDecimal.valueOf(upper) : null);
-
-            // Evaluate regression polynomial
-            double rawFeePct = evaluatePolynomial(coefficients, freq);
-
-            // Clamp to [0, maxFeePct]
-            rawFeePct = Math.max(0.0, Math.min(rawFeePct, maxFeePct));
-
-            return absAmount.multiply(BigDecimal.valueOf(rawFeePct));
-
-        } catch (Exception e) {
-            log.error("Error computing table mode fee", e);
+    BigDecimal computeFeeTableMode(CompiledFeePlan plan, BigDecimal absAmount, Long userId) {
+        // Find which interval the amount falls into
+        int interval = plan.intervalOf(absAmount.doubleValue());
+        if (interval < 0 || !plan.hasFeeData(interval)) {
             return BigDecimal.ZERO;
         }
+
+        // Compute payment frequency for this interval
+        double freq = getPaymentFrequency(userId, plan.lowerBound(interval), plan.upperBound(interval));
+
+        // Evaluate regression polynomial, clamped to [0, maxFee]
+        return plan.tableFee(absAmount, interval, freq);
     }
 
     /**
      * Compute payment frequency.
      * Mirrors Python's get_payment_frequency() function.
+     * Answered from the per-user amount histogram in {@link LedgerAnalyticsService}.
      * 
      * @param userId     User ID
      * @param lowerBound Lower bound of amount range
@@ -194,27 +235,7 @@ public class FeeEngineService {
      * @return Fraction of user's payments in the range [0.0, 1.0]
      */
     public double getPaymentFrequency(Long userId, BigDecimal lowerBound, BigDecimal upperBound) {
-        long totalCount = paymentItemRepository.countByUserId(userId);
-        if (totalCount == 0) {
-            return 0.0;
-        }
-
-        List<PaymentItem> filtered = paymentItemRepository.findByUserIdAndAbsAmountBetween(
-                userId, lowerBound, upperBound);
-
-        return (double) filtered.size() / totalCount;
-    }
-
-    /**
-     * Evaluate polynomial with given coefficients.
-     * Coefficients are [c0, c1, c2, ...] for c0 + c1*x + c2*x² + ...
-     */
-    private double evaluatePolynomial(List<Double> coefficients, double x) {
-        double result = 0.0;
-        for (int i = 0; i < coefficients.size(); i++) {
-            result += coefficients.get(i) * Math.pow(x, i);
-        }
-        return result;
+        return ledgerAnalyticsService.paymentFrequency(userId, lowerBound, upperBound);
     }
 
     /**
@@ -282,6 +303,47 @@ public class FeeEngineService {
         return BigDecimal.ZERO;
     }
 
+    /**
+     * Recompute the fee when a payment's amount is updated.
+     * Mirrors Python's recompute_fee_record() function.
+     * 
+     * Updates, deletes or creates the fee record and sets the item's amount
+     * to the new amount minus the new fee. The caller saves the item.
+     * 
+     * @param paymentItem Payment item being updated
+     * @param newAmount   New amount before fees
+     * @param userId      User ID
+     * @return New fee amount (or 0 if no fee applies)
+     */
+    @Transactional
+    public BigDecimal recomputeFeeRecord(PaymentItem paymentItem, BigDecimal newAmount, Long userId) {
+        TransactionFeeRecord existing = feeRecordRepository.findByPaymentItemId(paymentItem.getId())
+                .orElse(null);
+
+        BigDecimal fee = computeFee(newAmount, userId);
+        boolean charged = fee.compareTo(BigDecimal.ZERO) > 0;
+
+        if (existing != null) {
+            if (charged) {
+                existing.setFeeAmount(fee);
+                existing.setOriginalAmount(newAmount);
+                feeRecordRepository.save(existing);
+            } else {
+                feeRecordRepository.delete(existing);
+            }
+        } else if (charged) {
+            feeRecordRepository.save(TransactionFeeRecord.builder()
+                    .paymentItem(paymentItem)
+                    .user(paymentItem.getUser())
+                    .feeAmount(fee)
+                    .originalAmount(newAmount)
+                    .build());
+        }
+
+        paymentItem.setAmount(charged ? applyFeeToAmount(newAmount, fee) : newAmount);
+        return fee;
+    }
+
     /**
      * Compute regression coefficients from user-clicked points.
      * Mirrors Python's compute_regression_coefficients() function.
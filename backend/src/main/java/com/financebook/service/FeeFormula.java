@@ -0,0 +1,307 @@
+package com.financebook.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * A fee formula f(x, y) compiled into a tree of closures.
+ * Mirrors Python's safe_eval_formula() in fee_engine.py.
+ *
+ * The accepted language is the same whitelist: numeric constants, the
+ * variables x (absolute amount) and y (payment frequency), + - * / ** and
+ * unary signs, parentheses and the functions abs, min, max, sqrt, log, sin
+ * and cos. Anything else is rejected when compiling. As in Python, division
+ * by zero yields 0; other domain errors yield a non-finite result, which
+ * callers treat like Python's None.
+ */
+public final class FeeFormula {
+
+    private static final int MAX_LENGTH = 1000;
+    private static final int MAX_DEPTH = 50;
+
+    private final DoubleBinaryOperator function;
+
+    private FeeFormula(DoubleBinaryOperator function) {
+        this.function = function;
+    }
+
+    /**
+     * Parse and compile a formula.
+     *
+     * @throws IllegalArgumentException if the text is not a valid formula
+     */
+    public static FeeFormula compile(String text) {
+        if (text.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Formula is longer than " + MAX_LENGTH + " characters");
+        }
+        return new FeeFormula(new Parser(text).parse());
+    }
+
+    /**
+     * Evaluate with amount x and frequency y.
+     */
+    public double evaluate(double x, double y) {
+        return function.applyAsDouble(x, y);
+    }
+
+    /**
+     * Recursive descent parser with Python's precedence: ** binds tighter
+     * than a unary sign on its left and is right associative.
+     */
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+        private int depth;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        DoubleBinaryOperator parse() {
+            DoubleBinaryOperator result = expression();
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("Unexpected '" + text.charAt(pos) + "'");
+            }
+            return result;
+        }
+
+        // expression := term (('+' | '-') term)*
+        private DoubleBinaryOperator expression() {
+            enter();
+            DoubleBinaryOperator left = term();
+            while (true) {
+                if (accept("+")) {
+                    DoubleBinaryOperator l = left;
+                    DoubleBinaryOperator r = term();
+                    left = (x, y) -> l.applyAsDouble(x, y) + r.applyAsDouble(x, y);
+                } else if (accept("-")) {
+                    DoubleBinaryOperator l = left;
+                    DoubleBinaryOperator r = term();
+                    left = (x, y) -> l.applyAsDouble(x, y) - r.applyAsDouble(x, y);
+                } else {
+                    depth--;
+                    return left;
+                }
+            }
+        }
+
+        // term := factor (('*' | '/') factor)*
+        private DoubleBinaryOperator term() {
+            DoubleBinaryOperator left = factor();
+            while (true) {
+                if (accept("*")) {
+                    DoubleBinaryOperator l = left;
+                    DoubleBinaryOperator r = factor();
+                    left = (x, y) -> l.applyAsDouble(x, y) * r.applyAsDouble(x, y);
+                } else if (accept("/")) {
+                    DoubleBinaryOperator l = left;
+                    DoubleBinaryOperator r = factor();
+                    left = (x, y) -> {
+                        double divisor = r.applyAsDouble(x, y);
+                        return divisor == 0 ? 0.0 : l.applyAsDouble(x, y) / divisor;
+                    };
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        // factor := ('+' | '-') factor | power
+        private DoubleBinaryOperator factor() {
+            if (accept("+")) {
+                enter();
+                DoubleBinaryOperator operand = factor();
+                depth--;
+                return operand;
+            }
+            if (accept("-")) {
+                enter();
+                DoubleBinaryOperator operand = factor();
+                depth--;
+                return (x, y) -> -operand.applyAsDouble(x, y);
+            }
+            return power();
+        }
+
+        // power := primary ('**' factor)?
+        private DoubleBinaryOperator power() {
+            DoubleBinaryOperator base = primary();
+            if (!accept("**")) {
+                return base;
+            }
+            enter();
+            DoubleBinaryOperator exponent = factor();
+            depth--;
+            return (x, y) -> Math.pow(base.applyAsDouble(x, y), exponent.applyAsDouble(x, y));
+        }
+
+        // primary := number | 'x' | 'y' | function '(' arguments ')' | '(' expression ')'
+        private DoubleBinaryOperator primary() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end of formula");
+            }
+
+            char c = text.charAt(pos);
+            if (Character.isDigit(c) || c == '.') {
+                double value = number();
+                return (x, y) -> value;
+            }
+            if (Character.isLetter(c) || c == '_') {
+                return name();
+            }
+            if (accept("(")) {
+                DoubleBinaryOperator inner = expression();
+                expect(")");
+                return inner;
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private double number() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            }
+            try {
+                return Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number '" + text.substring(start, pos) + "'");
+            }
+        }
+
+        private DoubleBinaryOperator name() {
+            int start = pos;
+            while (pos < text.length()
+                    && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            String name = text.substring(start, pos);
+
+            if (!accept("(")) {
+                return switch (name) {
+                    case "x" -> (x, y) -> x;
+                    case "y" -> (x, y) -> y;
+                    default -> throw error("Unknown variable '" + name + "'");
+                };
+            }
+
+            List<DoubleBinaryOperator> args = new ArrayList<>();
+            if (!accept(")")) {
+                do {
+                    args.add(expression());
+                } while (accept(","));
+                expect(")");
+            }
+            return function(name, args);
+        }
+
+        private DoubleBinaryOperator function(String name, List<DoubleBinaryOperator> args) {
+            switch (name) {
+                case "abs" -> {
+                    DoubleBinaryOperator a = single(name, args);
+                    return (x, y) -> Math.abs(a.applyAsDouble(x, y));
+                }
+                case "sqrt" -> {
+                    DoubleBinaryOperator a = single(name, args);
+                    return (x, y) -> Math.sqrt(a.applyAsDouble(x, y));
+                }
+                case "sin" -> {
+                    DoubleBinaryOperator a = single(name, args);
+                    return (x, y) -> Math.sin(a.applyAsDouble(x, y));
+                }
+                case "cos" -> {
+                    DoubleBinaryOperator a = single(name, args);
+                    return (x, y) -> Math.cos(a.applyAsDouble(x, y));
+                }
+                case "log" -> {
+                    if (args.size() == 1) {
+                        DoubleBinaryOperator a = args.get(0);
+                        return (x, y) -> Math.log(a.applyAsDouble(x, y));
+                    }
+                    if (args.size() == 2) {
+                        DoubleBinaryOperator a = args.get(0);
+                        DoubleBinaryOperator base = args.get(1);
+                        return (x, y) -> Math.log(a.applyAsDouble(x, y)) / Math.log(base.applyAsDouble(x, y));
+                    }
+                    throw error("log() takes 1 or 2 arguments");
+                }
+                case "min", "max" -> {
+                    if (args.size() < 2) {
+                        throw error(name + "() takes at least 2 arguments");
+                    }
+                    boolean min = name.equals("min");
+                    DoubleBinaryOperator[] operands = args.toArray(new DoubleBinaryOperator[0]);
+                    return (x, y) -> {
+                        double result = operands[0].applyAsDouble(x, y);
+                        for (int i = 1; i < operands.length; i++) {
+                            double value = operands[i].applyAsDouble(x, y);
+                            result = min ? Math.min(result, value) : Math.max(result, value);
+                        }
+                        return result;
+                    };
+                }
+                default -> throw error("Unknown function '" + name + "'");
+            }
+        }
+
+        private DoubleBinaryOperator single(String name, List<DoubleBinaryOperator> args) {
+            if (args.size() != 1) {
+                throw error(name + "() takes exactly 1 argument");
+            }
+            return args.get(0);
+        }
+
+        // Guards against stack overflow on deeply nested input
+        private void enter() {
+            if (++depth > MAX_DEPTH) {
+                throw error("Formula is nested too deeply");
+            }
+        }
+
+        private boolean peek(String token) {
+            skipWhitespace();
+            return text.startsWith(token, pos);
+        }
+
+        private boolean accept(String token) {
+            if (!peek(token)) {
+                return false;
+            }
+            // A single '*' must not consume half of '**'
+            if (token.equals("*") && text.startsWith("**", pos)) {
+                return false;
+            }
+            pos += token.length();
+            return true;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
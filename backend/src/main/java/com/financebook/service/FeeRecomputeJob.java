@@ -0,0 +1,59 @@
+package com.financebook.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of one fee recomputation job, updated by the worker thread and
+ * read by progress requests.
+ */
+@Getter
+public class FeeRecomputeJob {
+    
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile long totalItems;
+    private final AtomicLong processedItems = new AtomicLong();
+    private final AtomicLong changedItems = new AtomicLong();
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+    
+    public FeeRecomputeJob(Long userId) {
+        this.userId = userId;
+    }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+    
+    void start(long totalItems) {
+        this.totalItems = totalItems;
+        this.status = Status.RUNNING;
+    }
+    
+    void advance(int processed, int changed) {
+        processedItems.addAndGet(processed);
+        changedItems.addAndGet(changed);
+    }
+    
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+    
+    void fail(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
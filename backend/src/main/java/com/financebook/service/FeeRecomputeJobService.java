@@ -0,0 +1,154 @@
+package com.financebook.service;
+
+import com.financebook.dto.response.FeeRecomputeJobResponse;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.UserRepository;
+import com.financebook.util.DtoMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fee recomputations in the background after a fee plan change.
+ *
+ * Jobs run on a small bounded executor and commit one chunk at a time
+ * through {@link FeeRecomputeService}, so a large history neither holds a
+ * long transaction nor ties up a request thread. Progress is kept in
+ * memory; finished jobs are dropped after an hour.
+ */
+@Slf4j
+@Service
+public class FeeRecomputeJobService {
+    
+    private static final int CHUNK_SIZE = 1000;
+    
+    // Executor limits
+    private static final int WORKER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 100;
+    
+    private static final long FINISHED_JOB_RETENTION_MINUTES = 60;
+    
+    private final FeeRecomputeService feeRecomputeService;
+    private final LedgerAnalyticsService ledgerAnalyticsService;
+    private final UserRepository userRepository;
+    private final AdminService adminService;
+    private final Map<String, FeeRecomputeJob> jobsById = new ConcurrentHashMap<>();
+    private final Map<Long, FeeRecomputeJob> activeJobsByUserId = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    
+    public FeeRecomputeJobService(
+            FeeRecomputeService feeRecomputeService,
+            LedgerAnalyticsService ledgerAnalyticsService,
+            UserRepository userRepository,
+            AdminService adminService) {
+        this.feeRecomputeService = feeRecomputeService;
+        this.ledgerAnalyticsService = ledgerAnalyticsService;
+        this.userRepository = userRepository;
+        this.adminService = adminService;
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                WORKER_THREADS, WORKER_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fee-recompute-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * Start recomputing all fees of a user (admin only).
+     * A job that is already queued or running for the user is returned instead.
+     */
+    public FeeRecomputeJobResponse submit(Long userId, String adminUsername) {
+        adminService.requireAdmin(adminUsername);
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        pruneFinishedJobs();
+        
+        FeeRecomputeJob job = new FeeRecomputeJob(userId);
+        FeeRecomputeJob active = activeJobsByUserId.putIfAbsent(userId, job);
+        if (active != null) {
+            return DtoMapper.toFeeRecomputeJobResponse(active);
+        }
+        
+        jobsById.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobsById.remove(job.getId());
+            activeJobsByUserId.remove(userId, job);
+            throw new ValidationException("Too many fee recomputations queued, try again later");
+        }
+        
+        log.info("Queued fee recomputation {} for user {}", job.getId(), userId);
+        return DtoMapper.toFeeRecomputeJobResponse(job);
+    }
+    
+    /**
+     * Progress of a job (admin only).
+     */
+    public FeeRecomputeJobResponse getJob(String jobId, String adminUsername) {
+        adminService.requireAdmin(adminUsername);
+        FeeRecomputeJob job = jobsById.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Fee recomputation job not found");
+        }
+        return DtoMapper.toFeeRecomputeJobResponse(job);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void run(FeeRecomputeJob job) {
+        Long userId = job.getUserId();
+        try {
+            job.start(feeRecomputeService.countItems(userId));
+            FeeRecomputeService.Pricing pricing = feeRecomputeService.preparePricing(userId);
+            
+            long afterId = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                FeeRecomputeService.ChunkResult chunk = feeRecomputeService.recomputeChunk(
+                        userId, afterId, CHUNK_SIZE, pricing);
+                if (chunk.processed() == 0) {
+                    break;
+                }
+                job.advance(chunk.processed(), chunk.changed());
+                afterId = chunk.lastItemId();
+            }
+            
+            job.complete();
+            log.info("Fee recomputation {} for user {} finished: {} of {} items changed",
+                    job.getId(), userId, job.getChangedItems().get(), job.getProcessedItems().get());
+        } catch (RuntimeException e) {
+            log.error("Fee recomputation {} for user {} failed", job.getId(), userId, e);
+            // Database and driver messages stay in the log
+            job.fail(e instanceof ValidationException ? e.getMessage() : "Fee recomputation failed");
+        } finally {
+            // Amounts were written with JDBC; reload cached analytics
+            ledgerAnalyticsService.evictAfterCommit(userId);
+            activeJobsByUserId.remove(userId, job);
+        }
+    }
+    
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(FINISHED_JOB_RETENTION_MINUTES);
+        jobsById.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+}
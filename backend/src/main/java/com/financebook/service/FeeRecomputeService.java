@@ -0,0 +1,162 @@
+package com.financebook.service;
+
+import com.financebook.repository.FeeRecomputeRepository;
+import com.financebook.repository.FeeRecomputeRow;
+import com.financebook.repository.FeeRecomputeUpdate;
+import com.financebook.repository.SyncEntityType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recomputes the transaction fees of a user's payment items under the
+ * current fee plan, one chunk per transaction.
+ * Mirrors Python's recompute_fee_record() applied to every item.
+ *
+ * The amount before fees is the fee record's original amount, or the
+ * item's amount if no fee was charged. The plan and its payment
+ * frequencies are taken once at the start of a job, with frequencies over
+ * the amounts before fees as in {@link FeeSimulationService}, and every
+ * chunk is priced with them. Chunks committed earlier therefore cannot
+ * shift the frequencies of later ones.
+ */
+@Service
+@RequiredArgsConstructor
+public class FeeRecomputeService {
+    
+    /**
+     * Outcome of one chunk; lastItemId is where the next chunk starts.
+     */
+    public record ChunkResult(int processed, int changed, long lastItemId) {
+    }
+    
+    /**
+     * Fee plan and payment frequencies shared by all chunks of one job.
+     * A null plan charges no fees.
+     */
+    public record Pricing(CompiledFeePlan plan, double[] frequencies, double overallFrequency) {
+        
+        /**
+         * Fee of an amount, computed like {@link FeeEngineService#computeFee}
+         * but with the frequencies of this snapshot.
+         */
+        BigDecimal fee(BigDecimal amount) {
+            if (plan == null) {
+                return BigDecimal.ZERO;
+            }
+            
+            BigDecimal absAmount = amount.abs();
+            boolean table = "table".equals(plan.getMode());
+            boolean formula = "formula".equals(plan.getMode());
+            
+            long absCents = FeeEngineService.toCents(absAmount);
+            if (absCents >= 0) {
+                long feeCents = 0;
+                if (table) {
+                    int interval = plan.intervalOf(absCents / 100.0);
+                    if (interval >= 0 && plan.hasFeeData(interval)) {
+                        feeCents = plan.tableFeeCents(absCents, interval, frequencies[interval]);
+                    }
+                } else if (formula) {
+                    feeCents = plan.formulaFeeCents(absCents, overallFrequency);
+                }
+                return feeCents == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(feeCents, 2);
+            }
+            
+            // Fractions of a cent: exact BigDecimal arithmetic
+            BigDecimal fee = BigDecimal.ZERO;
+            if (table) {
+                int interval = plan.intervalOf(absAmount.doubleValue());
+                if (interval >= 0 && plan.hasFeeData(interval)) {
+                    fee = plan.tableFee(absAmount, interval, frequencies[interval]);
+                }
+            } else if (formula) {
+                fee = plan.formulaFee(absAmount, overallFrequency);
+            }
+            return FeeEngineService.roundFee(fee, absAmount);
+        }
+    }
+    
+    private final FeeRecomputeRepository feeRecomputeRepository;
+    private final FeeEngineService feeEngineService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final DataVersionService dataVersionService;
+    
+    public long countItems(Long userId) {
+        return feeRecomputeRepository.countItems(userId);
+    }
+    
+    /**
+     * Current fee plan of the user with the payment frequency of every
+     * table interval over the amounts before fees.
+     */
+    public Pricing preparePricing(Long userId) {
+        CompiledFeePlan plan = feeEngineService.compiledPlanFor(userId);
+        if (plan == null) {
+            return new Pricing(null, new double[0], 0.0);
+        }
+        
+        long[] cents = feeRecomputeRepository.findAbsOriginalCents(userId);
+        long[] itemsPerInterval = new long[plan.intervalCount()];
+        for (long amount : cents) {
+            int interval = plan.intervalOf(amount / 100.0);
+            if (interval >= 0) {
+                itemsPerInterval[interval]++;
+            }
+        }
+        
+        double[] frequencies = new double[itemsPerInterval.length];
+        for (int i = 0; i < frequencies.length; i++) {
+            frequencies[i] = cents.length > 0 ? (double) itemsPerInterval[i] / cents.length : 0.0;
+        }
+        // Every amount lies in [0, ∞), which is the range formula plans use
+        double overallFrequency = cents.length > 0 ? 1.0 : 0.0;
+        
+        return new Pricing(plan, frequencies, overallFrequency);
+    }
+    
+    /**
+     * Recompute the fees of up to limit items with ids above afterId,
+     * priced with the job's pricing snapshot.
+     */
+    @Transactional
+    public ChunkResult recomputeChunk(Long userId, long afterId, int limit, Pricing pricing) {
+        List<FeeRecomputeRow> rows = feeRecomputeRepository.lockChunk(userId, afterId, limit);
+        if (rows.isEmpty()) {
+            return new ChunkResult(0, 0, afterId);
+        }
+        
+        List<FeeRecomputeUpdate> updates = new ArrayList<>();
+        MonthlyRollupDeltas rollupDeltas = new MonthlyRollupDeltas();
+        for (FeeRecomputeRow row : rows) {
+            BigDecimal original = row.originalAmount() != null ? row.originalAmount() : row.amount();
+            BigDecimal fee = pricing.fee(original);
+            boolean charged = fee.compareTo(BigDecimal.ZERO) > 0;
+            BigDecimal adjusted = charged ? feeEngineService.applyFeeToAmount(original, fee) : original;
+            
+            boolean recordUnchanged = row.feeRecordId() == null
+                    ? !charged
+                    : charged && fee.compareTo(row.feeAmount()) == 0;
+            if (recordUnchanged && adjusted.compareTo(row.amount()) == 0) {
+                continue;
+            }
+            
+            updates.add(new FeeRecomputeUpdate(row.itemId(), row.feeRecordId(), original, fee, adjusted));
+            rollupDeltas.remove(row.amount(), row.date(), row.standardCategoryId())
+                    .add(adjusted, row.date(), row.standardCategoryId());
+        }
+        
+        if (!updates.isEmpty()) {
+            feeRecomputeRepository.applyUpdates(userId, updates);
+            monthlyRollupService.apply(userId, rollupDeltas);
+            dataVersionService.recordChanges(userId, SyncEntityType.PAYMENT_ITEM,
+                    updates.stream().map(FeeRecomputeUpdate::itemId).toList());
+        }
+        
+        return new ChunkResult(rows.size(), updates.size(), rows.get(rows.size() - 1).itemId());
+    }
+}
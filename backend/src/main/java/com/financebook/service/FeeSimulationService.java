@@ -0,0 +1,261 @@
+package com.financebook.service;
+
+import com.financebook.dto.request.FeePlanSimulationRequest;
+import com.financebook.dto.response.FeeSimulationBucketResponse;
+import com.financebook.dto.response.FeeSimulationIntervalResponse;
+import com.financebook.dto.response.FeeSimulationResponse;
+import com.financebook.entity.TransactionFeePlan;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.FeeRecomputeRepository;
+import com.financebook.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * What-if evaluation of a candidate fee plan over a user's whole history.
+ *
+ * All amounts before fees are loaded once into a primitive array. A first
+ * pass assigns items to table intervals, which gives every interval's
+ * payment frequency; a second pass prices each item and tallies totals,
+ * per-interval figures and the fee distribution. Both passes run on slices
+ * in parallel. Nothing is persisted.
+ *
+ * Frequencies are taken over the amounts before fees, whereas the live
+ * engine counts amounts already reduced by earlier fees, so results can
+ * differ slightly for items near an interval bound.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FeeSimulationService {
+    
+    // Items per parallel task
+    private static final int SLICE_SIZE = 16_384;
+    
+    // Lower bounds of the fee distribution buckets in cents; the first bucket holds uncharged items
+    private static final long[] DISTRIBUTION_BOUNDS_CENTS = {0, 1, 10, 100, 1_000, 10_000};
+    
+    private final FeeRecomputeRepository feeRecomputeRepository;
+    private final UserRepository userRepository;
+    private final AdminService adminService;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Simulate the candidate plan on the user's payment items (admin only).
+     */
+    public FeeSimulationResponse simulate(Long userId, FeePlanSimulationRequest request, String adminUsername) {
+        adminService.requireAdmin(adminUsername);
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        
+        CompiledFeePlan plan = compile(request);
+        long[] cents = feeRecomputeRepository.findAbsOriginalCents(userId);
+        int itemCount = cents.length;
+        int slices = (itemCount + SLICE_SIZE - 1) / SLICE_SIZE;
+        int intervalCount = plan.intervalCount();
+        
+        // Pass 1: interval of every item and the resulting frequencies
+        int[] intervals = new int[itemCount];
+        long[] itemsPerInterval = IntStream.range(0, slices).parallel()
+                .mapToObj(slice -> assignIntervals(plan, cents, intervals, slice))
+                .reduce(new long[intervalCount], FeeSimulationService::sum);
+        
+        double[] frequencies = new double[intervalCount];
+        for (int i = 0; i < intervalCount; i++) {
+            frequencies[i] = itemCount > 0 ? (double) itemsPerInterval[i] / itemCount : 0.0;
+        }
+        // Every amount lies in [0, ∞), which is the range formula plans use
+        double overallFrequency = itemCount > 0 ? 1.0 : 0.0;
+        
+        // Pass 2: fees
+        Tally tally = IntStream.range(0, slices).parallel()
+                .mapToObj(slice -> price(plan, cents, intervals, frequencies, overallFrequency, slice))
+                .reduce(new Tally(intervalCount), Tally::merge);
+        
+        log.debug("Simulated {} plan on {} items of user {} in {} slices", plan.getMode(), itemCount, userId, slices);
+        return toResponse(userId, plan, frequencies, tally);
+    }
+    
+    private CompiledFeePlan compile(FeePlanSimulationRequest request) {
+        if ("formula".equals(request.getMode())
+                && (request.getFormulaText() == null || request.getFormulaText().isBlank())) {
+            throw new ValidationException("formula_text is required for formula plans");
+        }
+        
+        try {
+            TransactionFeePlan candidate = TransactionFeePlan.builder()
+                    .mode(request.getMode())
+                    .formulaText(request.getFormulaText())
+                    .amountTableJson(objectMapper.writeValueAsString(
+                            request.getAmountTable() != null ? request.getAmountTable() : List.of(0.0)))
+                    .intervalDataJson(objectMapper.writeValueAsString(
+                            request.getIntervalData() != null ? request.getIntervalData() : Map.of()))
+                    .build();
+            return CompiledFeePlan.compile(candidate, objectMapper);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new ValidationException("Invalid fee plan: " + e.getMessage());
+        }
+    }
+    
+    private static long[] assignIntervals(CompiledFeePlan plan, long[] cents, int[] intervals, int slice) {
+        long[] counts = new long[plan.intervalCount()];
+        int end = Math.min(cents.length, (slice + 1) * SLICE_SIZE);
+        for (int i = slice * SLICE_SIZE; i < end; i++) {
+            int interval = plan.intervalOf(cents[i] / 100.0);
+            intervals[i] = interval;
+            if (interval >= 0) {
+                counts[interval]++;
+            }
+        }
+        return counts;
+    }
+    
+    private static Tally price(CompiledFeePlan plan, long[] cents, int[] intervals,
+                               double[] frequencies, double overallFrequency, int slice) {
+        Tally tally = new Tally(plan.intervalCount());
+        boolean table = "table".equals(plan.getMode());
+        boolean formula = "formula".equals(plan.getMode());
+        
+        int end = Math.min(cents.length, (slice + 1) * SLICE_SIZE);
+        for (int i = slice * SLICE_SIZE; i < end; i++) {
+            int interval = intervals[i];
+            
+            long feeCents = 0;
+            if (table && interval >= 0 && plan.hasFeeData(interval)) {
+                feeCents = plan.tableFeeCents(cents[i], interval, frequencies[interval]);
+            } else if (formula) {
+                feeCents = plan.formulaFeeCents(cents[i], overallFrequency);
+            }
+            
+            tally.add(interval, cents[i], feeCents);
+        }
+        return tally;
+    }
+    
+    private static long[] sum(long[] a, long[] b) {
+        long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+    
+    private static FeeSimulationResponse toResponse(Long userId, CompiledFeePlan plan,
+                                                    double[] frequencies, Tally tally) {
+        List<FeeSimulationIntervalResponse> intervals = new ArrayList<>();
+        for (int i = 0; i < plan.intervalCount(); i++) {
+            intervals.add(FeeSimulationIntervalResponse.builder()
+                    .lowerBound(plan.lowerBound(i))
+                    .upperBound(plan.upperBound(i))
+                    .frequency(frequencies[i])
+                    .itemCount(tally.intervalItems[i])
+                    .chargedCount(tally.intervalCharged[i])
+                    .totalAmount(BigDecimal.valueOf(tally.intervalAmountCents[i], 2))
+                    .totalFees(BigDecimal.valueOf(tally.intervalFeeCents[i], 2))
+                    .build());
+        }
+        
+        List<FeeSimulationBucketResponse> distribution = new ArrayList<>();
+        for (int b = 0; b < DISTRIBUTION_BOUNDS_CENTS.length; b++) {
+            distribution.add(FeeSimulationBucketResponse.builder()
+                    .minFee(BigDecimal.valueOf(DISTRIBUTION_BOUNDS_CENTS[b], 2))
+                    .maxFee(b + 1 < DISTRIBUTION_BOUNDS_CENTS.length
+                            ? BigDecimal.valueOf(DISTRIBUTION_BOUNDS_CENTS[b + 1], 2)
+                            : null)
+                    .itemCount(tally.bucketItems[b])
+                    .totalFees(BigDecimal.valueOf(tally.bucketFeeCents[b], 2))
+                    .build());
+        }
+        
+        return FeeSimulationResponse.builder()
+                .userId(userId)
+                .itemCount(tally.items)
+                .chargedCount(tally.charged)
+                .totalAmount(BigDecimal.valueOf(tally.amountCents, 2))
+                .totalFees(BigDecimal.valueOf(tally.feeCents, 2))
+                .intervals(intervals)
+                .distribution(distribution)
+                .build();
+    }
+    
+    /**
+     * Counters of one slice, merged across slices.
+     */
+    private static final class Tally {
+        
+        private long items;
+        private long charged;
+        private long amountCents;
+        private long feeCents;
+        
+        private final long[] intervalItems;
+        private final long[] intervalCharged;
+        private final long[] intervalAmountCents;
+        private final long[] intervalFeeCents;
+        
+        private final long[] bucketItems = new long[DISTRIBUTION_BOUNDS_CENTS.length];
+        private final long[] bucketFeeCents = new long[DISTRIBUTION_BOUNDS_CENTS.length];
+        
+        Tally(int intervalCount) {
+            intervalItems = new long[intervalCount];
+            intervalCharged = new long[intervalCount];
+            intervalAmountCents = new long[intervalCount];
+            intervalFeeCents = new long[intervalCount];
+        }
+        
+        void add(int interval, long amount, long fee) {
+            items++;
+            amountCents += amount;
+            feeCents += fee;
+            if (fee > 0) {
+                charged++;
+            }
+            
+            if (interval >= 0) {
+                intervalItems[interval]++;
+                intervalAmountCents[interval] += amount;
+                intervalFeeCents[interval] += fee;
+                if (fee > 0) {
+                    intervalCharged[interval]++;
+                }
+            }
+            
+            int bucket = DISTRIBUTION_BOUNDS_CENTS.length - 1;
+            while (fee < DISTRIBUTION_BOUNDS_CENTS[bucket]) {
+                bucket--;
+            }
+            bucketItems[bucket]++;
+            bucketFeeCents[bucket] += fee;
+        }
+        
+        Tally merge(Tally other) {
+            Tally merged = new Tally(intervalItems.length);
+            merged.items = items + other.items;
+            merged.charged = charged + other.charged;
+            merged.amountCents = amountCents + other.amountCents;
+            merged.feeCents = feeCents + other.feeCents;
+            for (int i = 0; i < intervalItems.length; i++) {
+                merged.intervalItems[i] = intervalItems[i] + other.intervalItems[i];
+                merged.intervalCharged[i] = intervalCharged[i] + other.intervalCharged[i];
+                merged.intervalAmountCents[i] = intervalAmountCents[i] + other.intervalAmountCents[i];
+                merged.intervalFeeCents[i] = intervalFeeCents[i] + other.intervalFeeCents[i];
+            }
+            for (int b = 0; b < bucketItems.length; b++) {
+                merged.bucketItems[b] = bucketItems[b] + other.bucketItems[b];
+                merged.bucketFeeCents[b] = bucketFeeCents[b] + other.bucketFeeCents[b];
+            }
+            return merged;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.financebook.exception.ResourceNotFoundException;
 import com.financebook.exception.UnauthorizedException;
 import com.financebook.exception.ValidationException;
 import com.financebook.repository.PaymentItemRepository;
+import com.financebook.repository.SyncEntityType;
 import com.financebook.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +36,7 @@ public class FileStorageService {
     
     private final PaymentItemRepository paymentItemRepository;
     private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
     
     @Value("${file.upload.icons-dir:./icons}")
     private String iconsDir;
@@ -161,6 +163,7 @@ public class FileStorageService {
         // Update payment item
         paymentItem.setInvoicePath(uniqueFilename);
         paymentItemRepository.save(paymentItem);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.PAYMENT_ITEM, paymentItemId);
         
         Map<String, Object> response = new HashMap<>();
         response.put("message", "Invoice uploaded successfully");
@@ -227,6 +230,7 @@ public class FileStorageService {
         // Clear invoice path from database
         paymentItem.setInvoicePath(null);
         paymentItemRepository.save(paymentItem);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.PAYMENT_ITEM, paymentItemId);
     }
     
     /**
@@ -0,0 +1,81 @@
+package com.financebook.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of one CSV import job, updated by the worker thread and read by
+ * progress requests.
+ */
+@Getter
+public class ImportJob {
+    
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+    
+    private final String id = UUID.randomUUID().toString();
+    private final Long userId;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private final AtomicLong rowsProcessed = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong createdPayments = new AtomicLong();
+    private final AtomicLong createdRecipients = new AtomicLong();
+    private final AtomicLong updatedRecipients = new AtomicLong();
+    private final AtomicLong createdCategories = new AtomicLong();
+    private volatile String error;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    
+    public ImportJob(Long userId) {
+        this.userId = userId;
+    }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+    
+    /**
+     * Rows processed per second since the job started, up to now or until it finished.
+     */
+    public double getRowsPerSecond() {
+        LocalDateTime started = startedAt;
+        if (started == null) {
+            return 0.0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Duration.between(started, end).toMillis();
+        return millis > 0 ? rowsProcessed.get() * 1000.0 / millis : 0.0;
+    }
+    
+    void start() {
+        this.startedAt = LocalDateTime.now();
+        this.status = Status.RUNNING;
+    }
+    
+    void advance(ImportService.ChunkResult chunk) {
+        rowsFailed.addAndGet(chunk.failed());
+        createdPayments.addAndGet(chunk.createdPayments());
+        createdRecipients.addAndGet(chunk.createdRecipients());
+        updatedRecipients.addAndGet(chunk.updatedRecipients());
+        createdCategories.addAndGet(chunk.createdCategories());
+        rowsProcessed.addAndGet(chunk.processed());
+    }
+    
+    void complete() {
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+    
+    void fail(String message) {
+        error = message;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
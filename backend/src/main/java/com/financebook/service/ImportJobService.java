@@ -0,0 +1,289 @@
+package com.financebook.service;
+
+import com.financebook.dto.response.ImportJobResponse;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.UserRepository;
+import com.financebook.util.DtoMapper;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs CSV imports in the background.
+ *
+ * The upload is copied to a temporary file and the request returns at
+ * once. Each job then runs as a pipeline over chunks of import.batch-size
+ * lines: a reader thread splits the file into chunks, a shared pool of
+ * parser threads parses and validates them, and the job's worker thread
+ * writes them through {@link ImportService} in file order, committing each
+ * chunk on its own. The queue of chunks between reader and writer is
+ * bounded, so a slow database stalls reading instead of filling memory.
+ *
+ * A failed chunk stops the job; earlier chunks stay committed. Uploads of
+ * at least import.copy-threshold skip the per-chunk writes: the writer
+ * streams the parsed chunks into the staging table with COPY and
+ * {@link ImportService#bulkImport} inserts everything in one transaction,
+ * so such an import is applied completely or not at all. One import
+ * per user runs at a time. Progress is kept in memory; finished jobs are
+ * dropped after an hour.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    // Executor limits
+    private static final int WORKER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 20;
+    private static final int PARSER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    // Chunks read ahead of the writer, per job
+    private static final int PIPELINE_DEPTH = 2 * PARSER_THREADS;
+
+    // Marks the end of the file in the chunk queue
+    private static final ImportService.ParsedChunk END_OF_FILE = new ImportService.ParsedChunk(List.of(), 0);
+
+    private static final long FINISHED_JOB_RETENTION_MINUTES = 60;
+
+    private final ImportService importService;
+    private final UserRepository userRepository;
+    private final int chunkSize;
+    private final long copyThresholdBytes;
+    private final Map<String, ImportJob> jobsById = new ConcurrentHashMap<>();
+    private final Map<Long, ImportJob> activeJobsByUserId = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor readerExecutor;
+    private final ThreadPoolExecutor parserExecutor;
+
+    public ImportJobService(
+            ImportService importService,
+            UserRepository userRepository,
+            @Value("${import.batch-size:1000}") int chunkSize,
+            @Value("${import.copy-threshold:4MB}") DataSize copyThreshold) {
+        this.importService = importService;
+        this.userRepository = userRepository;
+        this.chunkSize = chunkSize;
+        this.copyThresholdBytes = copyThreshold.toBytes();
+
+        this.executor = new ThreadPoolExecutor(
+                WORKER_THREADS, WORKER_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                namedThreads("csv-import-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // One reader per running job; parser work is bounded by PIPELINE_DEPTH per job
+        this.readerExecutor = new ThreadPoolExecutor(
+                WORKER_THREADS, WORKER_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("csv-import-reader-"));
+        this.parserExecutor = new ThreadPoolExecutor(
+                PARSER_THREADS, PARSER_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreads("csv-import-parser-"));
+    }
+
+    /**
+     * Queue an import of the uploaded file for the user.
+     */
+    public ImportJobResponse submit(MultipartFile file, String username) throws IOException {
+        Long userId = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"))
+                .getId();
+        pruneFinishedJobs();
+
+        ImportJob job = new ImportJob(userId);
+        if (activeJobsByUserId.putIfAbsent(userId, job) != null) {
+            throw new ValidationException("An import is already running, wait for it to finish");
+        }
+
+        Path upload;
+        try {
+            upload = Files.createTempFile("financebook-import-", ".csv");
+            file.transferTo(upload);
+        } catch (IOException | RuntimeException e) {
+            activeJobsByUserId.remove(userId, job);
+            throw e;
+        }
+
+        jobsById.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, username, upload));
+        } catch (RejectedExecutionException e) {
+            jobsById.remove(job.getId());
+            activeJobsByUserId.remove(userId, job);
+            deleteQuietly(upload);
+            throw new ValidationException("Too many imports queued, try again later");
+        }
+
+        log.info("Queued CSV import {} for user {}", job.getId(), userId);
+        return DtoMapper.toImportJobResponse(job);
+    }
+
+    /**
+     * Progress of one of the user's import jobs.
+     */
+    public ImportJobResponse getJob(String jobId, String username) {
+        Long userId = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"))
+                .getId();
+
+        ImportJob job = jobsById.get(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("Import job not found");
+        }
+        return DtoMapper.toImportJobResponse(job);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        readerExecutor.shutdownNow();
+        parserExecutor.shutdownNow();
+    }
+
+    // Writer stage, on the job's worker thread
+    private void run(ImportJob job, String username, Path upload) {
+        Long userId = job.getUserId();
+        job.start();
+        BlockingQueue<CompletableFuture<ImportService.ParsedChunk>> chunks = new ArrayBlockingQueue<>(PIPELINE_DEPTH);
+        Future<?> reader = null;
+        try {
+            if (Files.size(upload) >= copyThresholdBytes) {
+                reader = readerExecutor.submit(() -> read(upload, chunks));
+                bulkImport(job, chunks);
+            } else {
+                ImportService.Session session = importService.openSession(username);
+                reader = readerExecutor.submit(() -> read(upload, chunks));
+
+                ImportService.ParsedChunk chunk;
+                while ((chunk = chunks.take().join()) != END_OF_FILE) {
+                    job.advance(importService.importChunk(session, chunk));
+                }
+            }
+
+            job.complete();
+            log.info("CSV import {} for user {} finished: {} rows, {} failed, {} rows/s",
+                    job.getId(), userId, job.getRowsProcessed().get(), job.getRowsFailed().get(),
+                    Math.round(job.getRowsPerSecond()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Import interrupted");
+        } catch (IOException | RuntimeException e) {
+            // Reader and parser failures arrive wrapped by join()
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("CSV import {} for user {} failed", job.getId(), userId, cause);
+            // Job status is shown to the user; database and driver messages stay in the log
+            job.fail(cause instanceof ValidationException ? cause.getMessage() : "Import failed");
+        } finally {
+            if (reader != null) {
+                reader.cancel(true);
+            }
+            deleteQuietly(upload);
+            activeJobsByUserId.remove(userId, job);
+        }
+    }
+
+    /**
+     * Writer stage for large uploads: stage every chunk, then insert all
+     * rows at once. Line counts advance while staging; created rows are
+     * added when the transaction has committed.
+     */
+    private void bulkImport(ImportJob job, BlockingQueue<CompletableFuture<ImportService.ParsedChunk>> chunks) {
+        ImportService.ChunkResult result = importService.bulkImport(job.getUserId(), job.getId(), () -> {
+            ImportService.ParsedChunk chunk = chunks.take().join();
+            return chunk != END_OF_FILE ? chunk : null;
+        }, chunk -> job.advance(new ImportService.ChunkResult(
+                chunk.lines().size() + chunk.failed(), chunk.failed(), 0, 0, 0, 0)));
+        job.advance(result);
+    }
+
+    /**
+     * Reader stage: split the file into chunks and hand each to the parser
+     * pool. Blocks while the writer is PIPELINE_DEPTH chunks behind and
+     * stops when interrupted.
+     */
+    private void read(Path upload, BlockingQueue<CompletableFuture<ImportService.ParsedChunk>> chunks) {
+        CompletableFuture<ImportService.ParsedChunk> last;
+        try (InputStream in = Files.newInputStream(upload);
+             CSVReader reader = ImportService.openReader(in)) {
+            List<String[]> lines = new ArrayList<>(chunkSize);
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                lines.add(line);
+                if (lines.size() >= chunkSize) {
+                    chunks.put(parse(lines));
+                    lines = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.put(parse(lines));
+            }
+            last = CompletableFuture.completedFuture(END_OF_FILE);
+        } catch (InterruptedException e) {
+            // The writer stopped
+            return;
+        } catch (IOException | CsvValidationException | RuntimeException e) {
+            last = CompletableFuture.failedFuture(e);
+        }
+
+        try {
+            chunks.put(last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<ImportService.ParsedChunk> parse(List<String[]> lines) {
+        return CompletableFuture.supplyAsync(() -> ImportService.parseChunk(lines), parserExecutor);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}", path, e);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(FINISHED_JOB_RETENTION_MINUTES);
+        jobsById.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
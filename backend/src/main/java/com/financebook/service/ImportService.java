@@ -1,173 +1,404 @@
 package com.financebook.service;
 
-import com.financebook.dto.response.ImportCsvSummary;
 import com.financebook.entity.*;
+import com.financebook.exception.ResourceNotFoundException;
 import com.financebook.repository.*;
+import com.financebook.util.Constants;
 import com.opencsv.CSVParser;
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Optional;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Imports payment items from CSV files, one chunk of lines per transaction.
+ * Driven by {@link ImportJobService}.
+ *
+ * Parsing is stateless and may run on any thread; resolving recipients and
+ * categories and writing the items needs the {@link Session} and runs on one
+ * thread at a time, chunk after chunk. Large files instead go through
+ * {@link #bulkImport}, which loads them in a single transaction.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ImportService {
 
-    private final PaymentItemRepository paymentItemRepository;
+    // Integer digits of paymentitem.amount, DECIMAL(10,2)
+    private static final int MAX_AMOUNT_INTEGER_DIGITS = 8;
+
+    private final ImportRepository importRepository;
+    private final ImportStagingRepository importStagingRepository;
     private final RecipientRepository recipientRepository;
     private final CategoryRepository categoryRepository;
     private final CategoryTypeRepository categoryTypeRepository;
     private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final LedgerAnalyticsService ledgerAnalyticsService;
+    private final EntityManager entityManager;
 
-    @Transactional
-    public ImportCsvSummary importCsv(MultipartFile file, String username) throws IOException, CsvValidationException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * Outcome of one chunk of lines.
+     */
+    public record ChunkResult(int processed, int failed, int createdPayments, int createdRecipients,
+                              int updatedRecipients, int createdCategories) {
+    }
 
-        int createdPayments = 0;
-        int createdRecipients = 0;
-        int updatedRecipients = 0;
-        int createdCategories = 0;
+    /**
+     * A CSV line that passed parsing and validation. Blank recipient and
+     * category names are null.
+     */
+    public record ParsedLine(BigDecimal amount, LocalDateTime date, String description, boolean periodic,
+                             String recipientName, String recipientAddress, String categoryName) {
+    }
+
+    /**
+     * Parsed lines of one chunk, in file order, and the number of lines rejected.
+     */
+    public record ParsedChunk(List<ParsedLine> lines, int failed) {
+    }
 
+    /**
+     * State carried from chunk to chunk of one import: the user and lookups
+     * by name, loaded once and kept up to date as the import creates rows.
+     * The entities are detached between chunks.
+     */
+    public static final class Session {
+
+        private final User user;
+        private final Map<String, Recipient> recipientsByName;
+        private final Map<String, Category> categoriesByName;
+        private CategoryType standardType;
+
+        private Session(User user, Map<String, Recipient> recipientsByName,
+                        Map<String, Category> categoriesByName, CategoryType standardType) {
+            this.user = user;
+            this.recipientsByName = recipientsByName;
+            this.categoriesByName = categoriesByName;
+            this.standardType = standardType;
+        }
+
+        public Long getUserId() {
+            return user.getId();
+        }
+    }
+
+    /**
+     * Open a reader over an import file, positioned after the header line.
+     */
+    public static CSVReader openReader(InputStream in) {
         // Configure CSV parser with semicolon separator
         CSVParser parser = new CSVParserBuilder()
                 .withSeparator(';')
                 .withIgnoreQuotations(false)
                 .build();
 
-        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(file.getInputStream()))
+        return new CSVReaderBuilder(new InputStreamReader(in))
                 .withCSVParser(parser)
                 .withSkipLines(1) // Skip header
-                .build()) {
-
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                // Expected format: amount;date;description;Recipient name;Recipient
-                // address;standard_category name;periodic
-                if (line.length < 7) {
-                    log.warn("Skipping invalid line: {}", (Object) line);
-                    continue;
-                }
+                .build();
+    }
+
+    /**
+     * Load the user and their recipients, categories and "standard" type.
+     */
+    @Transactional(readOnly = true)
+    public Session openSession(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        return new Session(
+                user,
+                byName(recipientRepository.findByUserId(user.getId()), Recipient::getName, Recipient::getId),
+                byName(categoryRepository.findByUserId(user.getId()), Category::getName, Category::getId),
+                categoryTypeRepository.findByUserIdAndName(user.getId(), "standard").orElse(null));
+    }
+
+    /**
+     * Parse and validate a chunk of lines. Thread safe; invalid lines are
+     * logged and counted.
+     */
+    public static ParsedChunk parseChunk(List<String[]> lines) {
+        List<ParsedLine> parsed = new ArrayList<>(lines.size());
+        int failed = 0;
+        for (String[] line : lines) {
+            try {
+                parsed.add(parseLine(line));
+            } catch (RuntimeException e) {
+                log.warn("Skipping invalid CSV line {}: {}", (Object) line, e.getMessage());
+                failed++;
+            }
+        }
+        return new ParsedChunk(parsed, failed);
+    }
+
+    /**
+     * Parse one line, rejecting values the database would refuse.
+     *
+     * @throws IllegalArgumentException or DateTimeParseException if the line is invalid
+     */
+    private static ParsedLine parseLine(String[] line) {
+        // Expected format: amount;date;description;Recipient name;Recipient
+        // address;standard_category name;periodic
+        if (line.length < 7) {
+            throw new IllegalArgumentException("Expected 7 fields, got " + line.length);
+        }
+
+        String amountStr = line[0];
+        String dateStr = line[1];
+        String description = line[2];
+        String recipientName = line[3];
+        String recipientAddress = line[4];
+        String categoryName = line[5];
+        String periodicStr = line[6];
+
+        // Parse basic fields
+        BigDecimal amount = new BigDecimal(amountStr);
+        if (amount.precision() - amount.scale() > MAX_AMOUNT_INTEGER_DIGITS) {
+            throw new IllegalArgumentException("Amount out of range: " + amountStr);
+        }
+        // Conversion to LocalDateTime as expected by PaymentItem
+        LocalDate parsedDate = LocalDate.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE);
+        boolean periodic = Boolean.parseBoolean(periodicStr);
+
+        checkLength("Description", description, Constants.MAX_DESCRIPTION_LENGTH);
+        checkLength("Recipient name", recipientName, Constants.MAX_RECIPIENT_NAME_LENGTH);
+        checkLength("Recipient address", recipientAddress, Constants.MAX_RECIPIENT_ADDRESS_LENGTH);
+        checkLength("Category name", categoryName, Constants.MAX_CATEGORY_NAME_LENGTH);
+
+        return new ParsedLine(amount, parsedDate.atStartOfDay(), description, periodic,
+                recipientName != null && !recipientName.isBlank() ? recipientName : null,
+                recipientAddress,
+                categoryName != null && !categoryName.isBlank() ? categoryName : null);
+    }
+
+    private static void checkLength(String field, String value, int max) {
+        if (value != null && value.length() > max) {
+            throw new IllegalArgumentException(field + " longer than " + max + " characters");
+        }
+    }
 
-                try {
-                    String amountStr = line[0];
-                    String dateStr = line[1];
-                    String description = line[2];
-                    String recipientName = line[3];
-                    String recipientAddress = line[4];
-                    String categoryName = line[5];
-                    String periodicStr = line[6];
-
-                    // Parse basic fields
-                    BigDecimal amount = new BigDecimal(amountStr);
-                    // Conversion to LocalDateTime as expected by PaymentItem
-                    LocalDate parsedDate = LocalDate.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE);
-                    boolean periodic = Boolean.parseBoolean(periodicStr);
-
-                    // Handle Recipient
-                    Recipient recipient = null;
-                    if (recipientName != null && !recipientName.isBlank()) {
-                        Optional<Recipient> existingRecipient = recipientRepository.findByUserIdAndName(user.getId(),
-                                recipientName);
-                        if (existingRecipient.isPresent()) {
-                            recipient = existingRecipient.get();
-                            // Update address if provided and currently empty
-                            if (recipientAddress != null && !recipientAddress.isBlank() &&
-                                    (recipient.getAddress() == null || recipient.getAddress().isBlank())) {
-                                recipient.setAddress(recipientAddress);
-                                recipientRepository.save(recipient);
-                                updatedRecipients++;
-                            }
-                        } else {
-                            recipient = Recipient.builder()
-                                    .name(recipientName)
-                                    .address(recipientAddress)
-                                    .user(user)
-                                    .build();
-                            recipientRepository.save(recipient);
-                            createdRecipients++;
-                        }
+    /**
+     * Resolve recipients and categories of a parsed chunk, insert its
+     * payment items and commit. A database error fails the whole chunk,
+     * after which the session must not be used again.
+     */
+    @Transactional
+    public ChunkResult importChunk(Session session, ParsedChunk chunk) {
+        User user = session.user;
+
+        int createdRecipients = 0;
+        int updatedRecipients = 0;
+        int createdCategories = 0;
+
+        // Rows touched by this chunk, stamped for delta sync at the end
+        Set<Long> changedRecipientIds = new HashSet<>();
+        Set<Long> createdCategoryIds = new HashSet<>();
+        MonthlyRollupDeltas rollupDeltas = new MonthlyRollupDeltas();
+        List<ImportItemRow> rows = new ArrayList<>(chunk.lines().size());
+
+        for (ParsedLine line : chunk.lines()) {
+            String recipientAddress = line.recipientAddress();
+
+            // Handle Recipient
+            Recipient recipient = null;
+            if (line.recipientName() != null) {
+                recipient = session.recipientsByName.get(line.recipientName());
+                if (recipient != null) {
+                    // Update address if provided and currently empty
+                    if (recipientAddress != null && !recipientAddress.isBlank() &&
+                            (recipient.getAddress() == null || recipient.getAddress().isBlank())) {
+                        recipient.setAddress(recipientAddress);
+                        // Detached after an earlier chunk; save() returns the managed copy
+                        recipient = recipientRepository.save(recipient);
+                        session.recipientsByName.put(line.recipientName(), recipient);
+                        changedRecipientIds.add(recipient.getId());
+                        updatedRecipients++;
                     }
+                } else {
+                    recipient = Recipient.builder()
+                            .name(line.recipientName())
+                            .address(recipientAddress)
+                            .user(user)
+                            .build();
+                    recipientRepository.save(recipient);
+                    session.recipientsByName.put(line.recipientName(), recipient);
+                    changedRecipientIds.add(recipient.getId());
+                    createdRecipients++;
+                }
+            }
 
-                    // Handle Category
-                    Category category = null;
-                    if (categoryName != null && !categoryName.isBlank()) {
-                        Optional<Category> existingCategory = categoryRepository.findByUserIdAndName(user.getId(),
-                                categoryName);
-                        if (existingCategory.isPresent()) {
-                            category = existingCategory.get();
-                        } else {
-                            // Find or create "standard" category type
-                            CategoryType standardType = categoryTypeRepository
-                                    .findByUserIdAndName(user.getId(), "standard")
-                                    .orElseGet(() -> {
-                                        CategoryType newType = CategoryType.builder()
-                                                .name("standard")
-                                                .description("Default category type for imports")
-                                                .user(user)
-                                                .build();
-                                        return categoryTypeRepository.save(newType);
-                                    });
-
-                            category = Category.builder()
-                                    .name(categoryName)
-                                    .type(standardType)
-                                    .user(user)
-                                    .children(new java.util.ArrayList<>()) // Initialize children list
-                                    .build();
-
-                            categoryRepository.save(category);
-                            createdCategories++;
-                        }
+            // Handle Category
+            Category category = null;
+            if (line.categoryName() != null) {
+                category = session.categoriesByName.get(line.categoryName());
+                if (category == null) {
+                    // Create "standard" category type on first use
+                    if (session.standardType == null) {
+                        session.standardType = categoryTypeRepository.save(CategoryType.builder()
+                                .name("standard")
+                                .description("Default category type for imports")
+                                .user(user)
+                                .build());
                     }
 
-                    // Create Payment Item
-                    PaymentItem paymentItem = PaymentItem.builder()
-                            .amount(amount)
-                            .date(parsedDate.atStartOfDay())
-                            .description(description)
-                            .periodic(periodic)
+                    category = Category.builder()
+                            .name(line.categoryName())
+                            .type(session.standardType)
                             .user(user)
-                            .recipient(recipient)
-                            .standardCategory(category)
-                            .categories(new HashSet<>())
+                            .children(new java.util.ArrayList<>()) // Initialize children list
                             .build();
 
-                    // Associate category
-                    if (category != null) {
-                        paymentItem.getCategories().add(category);
-                    }
+                    categoryRepository.save(category);
+                    session.categoriesByName.put(line.categoryName(), category);
+                    createdCategoryIds.add(category.getId());
+                    createdCategories++;
+                }
+            }
 
-                    paymentItemRepository.save(paymentItem);
-                    createdPayments++;
+            // Queue Payment Item, linked to its standard category
+            ImportItemRow row = new ImportItemRow(
+                    line.amount(),
+                    line.date(),
+                    line.description(),
+                    line.periodic(),
+                    recipient != null ? recipient.getId() : null,
+                    category != null ? category.getId() : null);
+            rows.add(row);
+            rollupDeltas.add(row.amount(), row.date(), row.categoryId());
+        }
+
+        List<Long> createdPaymentIds = writeRows(user.getId(), rows);
+
+        monthlyRollupService.apply(user.getId(), rollupDeltas);
+        ledgerAnalyticsService.evictAfterCommit(user.getId());
+        dataVersionService.recordChanges(user.getId(), SyncEntityType.RECIPIENT, changedRecipientIds);
+        dataVersionService.recordChanges(user.getId(), SyncEntityType.CATEGORY, createdCategoryIds);
+        dataVersionService.recordChanges(user.getId(), SyncEntityType.PAYMENT_ITEM, createdPaymentIds);
+
+        return new ChunkResult(rows.size() + chunk.failed(), chunk.failed(), rows.size(),
+                createdRecipients, updatedRecipients, createdCategories);
+    }
 
-                } catch (Exception e) {
-                    log.error("Error processing CSV line: {}", (Object) line, e);
-                    // Continue processing other lines
+    /**
+     * Parsed chunks of one import, in file order; null after the last one.
+     */
+    @FunctionalInterface
+    public interface ChunkSource {
+        ParsedChunk next() throws InterruptedException;
+    }
+
+    /**
+     * Import a whole file in one transaction through the staging table:
+     * COPY every parsed line in, then create recipients, categories and
+     * payment items with one statement each. Resolves names like
+     * {@link #importChunk}; all rows written are stamped with a single
+     * data version. onStaged sees each chunk once it has been sent.
+     *
+     * @return the rows created and updated; lines are counted through onStaged
+     */
+    @Transactional
+    public ChunkResult bulkImport(Long userId, String importId, ChunkSource source, Consumer<ParsedChunk> onStaged) {
+        long staged = 0;
+        try (ImportStagingRepository.StagingCopy copy = importStagingRepository.openCopy(importId)) {
+            ParsedChunk chunk;
+            while ((chunk = source.next()) != null) {
+                for (ParsedLine line : chunk.lines()) {
+                    copy.write(++staged, line.amount(), line.date(), line.periodic(), line.description(),
+                            line.recipientName(), line.recipientAddress(), line.categoryName());
                 }
+                onStaged.accept(chunk);
             }
+            copy.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
         }
 
-        return ImportCsvSummary.builder()
-                .created_payments(createdPayments)
-                .created_recipients(createdRecipients)
-                .updated_recipients(updatedRecipients)
-                .created_categories(createdCategories)
-                .build();
+        if (staged == 0) {
+            return new ChunkResult(0, 0, 0, 0, 0, 0);
+        }
+
+        long version = dataVersionService.reserveVersion(userId);
+
+        // Addresses first, so recipients created below are not counted as updated
+        List<Long> updatedRecipientIds = importStagingRepository.updateRecipientAddresses(importId, userId, version);
+        List<Long> createdRecipientIds = importStagingRepository.insertRecipients(importId, userId, version);
+
+        List<Long> createdCategoryIds = List.of();
+        if (importStagingRepository.hasNewCategories(importId, userId)) {
+            // Create "standard" category type on first use
+            CategoryType standardType = categoryTypeRepository.findByUserIdAndName(userId, "standard")
+                    .orElseGet(() -> categoryTypeRepository.save(CategoryType.builder()
+                            .name("standard")
+                            .description("Default category type for imports")
+                            .user(userRepository.getReferenceById(userId))
+                            .build()));
+            createdCategoryIds = importStagingRepository.insertCategories(
+                    importId, userId, standardType.getId(), version);
+        }
+
+        List<Long> createdPaymentIds = importStagingRepository.insertPaymentItems(importId, userId, version);
+
+        MonthlyRollupDeltas rollupDeltas = new MonthlyRollupDeltas();
+        importStagingRepository.findMonthlyTotals(userId, version).forEach(rollupDeltas::add);
+        monthlyRollupService.apply(userId, rollupDeltas);
+        ledgerAnalyticsService.evictAfterCommit(userId);
+
+        List<Long> changedRecipientIds = new ArrayList<>(updatedRecipientIds);
+        changedRecipientIds.addAll(createdRecipientIds);
+        dataVersionService.publishChanges(userId, version, SyncEntityType.RECIPIENT, changedRecipientIds);
+        dataVersionService.publishChanges(userId, version, SyncEntityType.CATEGORY, createdCategoryIds);
+        dataVersionService.publishChanges(userId, version, SyncEntityType.PAYMENT_ITEM, createdPaymentIds);
+
+        importStagingRepository.deleteStaged(importId);
+
+        return new ChunkResult(0, 0, createdPaymentIds.size(), createdRecipientIds.size(),
+                updatedRecipientIds.size(), createdCategoryIds.size());
+    }
+
+    /**
+     * Index entities by name. Names are not unique, so the oldest entity
+     * with a name wins.
+     */
+    private static <T> Map<String, T> byName(List<T> entities, Function<T, String> name, Function<T, Long> id) {
+        Map<String, T> result = new HashMap<>(entities.size() * 2);
+        for (T entity : entities) {
+            result.merge(name.apply(entity), entity, (a, b) -> id.apply(a) <= id.apply(b) ? a : b);
+        }
+        return result;
+    }
+
+    /**
+     * Insert the chunk's payment items in JDBC batches. Recipients and
+     * categories created so far are flushed first so the items can refer
+     * to them; the persistence context is cleared afterwards.
+     */
+    private List<Long> writeRows(Long userId, List<ImportItemRow> rows) {
+        entityManager.flush();
+        List<Long> ids = importRepository.insertPaymentItems(userId, rows);
+        entityManager.clear();
+        return ids;
     }
 }
@@ -0,0 +1,386 @@
+package com.financebook.service;
+
+import com.financebook.analytics.AmountHistogram;
+import com.financebook.analytics.LedgerColumns;
+import com.financebook.analytics.LedgerKernels;
+import com.financebook.entity.PaymentItem;
+import com.financebook.repository.DataVersionRepository;
+import com.financebook.repository.PaymentItemColumnsView;
+import com.financebook.repository.PaymentItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process analytics over per-user {@link AmountHistogram}s and, optionally,
+ * {@link LedgerColumns}.
+ *
+ * Both are loaded on first use and kept for the most recently used users,
+ * together with the data version they reflect. Item writes in
+ * {@link PaymentItemService} are collected per transaction and patched in
+ * once it commits, tagged with the transaction's data version: patches the
+ * loaded rows already contain are skipped, and a patch that arrives after a
+ * later version was applied evicts the user instead, since the two commits
+ * may have touched the same item. A rolled back transaction leaves the
+ * caches untouched. The writing transaction itself sees its own changes
+ * through SQL. Caches loaded inside a write transaction may contain its
+ * uncommitted rows and are evicted when it completes; bulk writes evict as
+ * well.
+ *
+ * Histograms back payment frequencies and are always on. Columns are disabled
+ * by default (analytics.in-memory.enabled); callers fall back to SQL.
+ * Amount range scans use the Vector API kernels when the backend was built
+ * with the Maven profile simd, analytics.in-memory.simd is on and the JVM
+ * was started with --add-modules jdk.incubator.vector.
+ */
+@Slf4j
+@Service
+public class LedgerAnalyticsService {
+
+    // Loaded version of a cache entry that has not been loaded yet
+    private static final long UNLOADED = -1L;
+
+    // Bounds are clamped to this range; every amount lies well within it
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final PaymentItemRepository paymentItemRepository;
+    private final DataVersionRepository dataVersionRepository;
+    private final boolean enabled;
+    private final LedgerKernels kernels;
+    private final Map<Long, Cached<LedgerColumns>> columnsByUserId;
+    private final Map<Long, Cached<AmountHistogram>> histogramsByUserId;
+
+    // Transaction resource key of the pending changes
+    private final Object pendingKey = new Object();
+
+    public LedgerAnalyticsService(
+            PaymentItemRepository paymentItemRepository,
+            DataVersionRepository dataVersionRepository,
+            @Value("${analytics.in-memory.enabled:false}") boolean enabled,
+            @Value("${analytics.in-memory.max-users:1000}") int maxUsers,
+            @Value("${analytics.in-memory.simd:true}") boolean simd,
+            @Value("${analytics.amount-histogram.max-users:10000}") int maxHistogramUsers) {
+        this.paymentItemRepository = paymentItemRepository;
+        this.dataVersionRepository = dataVersionRepository;
+        this.enabled = enabled;
+        this.kernels = LedgerKernels.create(simd);
+        if (enabled) {
+            log.info("In-memory analytics enabled with {} kernels", kernels.name());
+        }
+
+        this.columnsByUserId = lruMap(maxUsers);
+        this.histogramsByUserId = lruMap(maxHistogramUsers);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fraction of the user's items whose absolute amount lies in
+     * [lowerBound, upperBound); upperBound null means unbounded.
+     *
+     * Whole-unit bounds are answered from the histogram; other bounds scan
+     * the columns if enabled, or count in SQL. A transaction with pending
+     * changes for the user counts in SQL, which sees them.
+     */
+    public double paymentFrequency(Long userId, BigDecimal lowerBound, BigDecimal upperBound) {
+        if (hasPendingChanges(userId)) {
+            return countFrequencyInSql(userId, lowerBound, upperBound);
+        }
+
+        AmountHistogram histogram = histogramFor(userId);
+        int total = histogram.size();
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long low = clampToCents(lowerBound);
+        long high = upperBound != null ? clampToCents(upperBound) : Long.MAX_VALUE;
+        OptionalLong count = histogram.countInRange(low, high);
+        if (count.isPresent()) {
+            return (double) count.getAsLong() / total;
+        }
+
+        if (enabled) {
+            return (double) columnsFor(userId).countAbsAmountInRange(low, high) / total;
+        }
+        return (double) paymentItemRepository.countByUserIdAndAbsAmountBetween(userId, lowerBound, upperBound)
+                / total;
+    }
+
+    /**
+     * Totals per standard category for items dated in [from, until);
+     * null bounds are open.
+     */
+    public List<LedgerColumns.CategoryTotals> totalsByCategory(Long userId, LocalDate from, LocalDate until) {
+        int fromDay = from != null ? Math.toIntExact(from.toEpochDay()) : Integer.MIN_VALUE;
+        int untilDay = until != null ? Math.toIntExact(until.toEpochDay()) : Integer.MAX_VALUE;
+
+        // Pending changes are only in the database, so read them into throwaway columns
+        LedgerColumns columns = hasPendingChanges(userId) ? loadColumns(new LedgerColumns(kernels), userId)
+                : columnsFor(userId);
+        return columns.totalsByCategory(fromDay, untilDay);
+    }
+
+    /**
+     * Patch a created or updated item in once the transaction commits.
+     * The transaction has to bump the user's data version.
+     */
+    public void recordUpsert(Long userId, PaymentItem item) {
+        recordChange(userId, item.getId(), toRow(item));
+    }
+
+    /**
+     * Patch a deleted item out once the transaction commits.
+     * The transaction has to bump the user's data version.
+     */
+    public void recordRemoval(Long userId, Long itemId) {
+        recordChange(userId, itemId, null);
+    }
+
+    /**
+     * Drop the user's histogram and columns once the transaction completes,
+     * committed or not; immediately outside a transaction. For bulk writes
+     * that do not record single items.
+     */
+    public void evictAfterCommit(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    private void evict(Long userId) {
+        histogramsByUserId.remove(userId);
+        columnsByUserId.remove(userId);
+    }
+
+    // A null row removes the item
+    private void recordChange(Long userId, Long itemId, LedgerColumns.Row row) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Already committed, but without a version to order it by
+            evict(userId);
+            return;
+        }
+
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(pendingKey, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.rowsByUserId.computeIfAbsent(userId, id -> new LinkedHashMap<>()).put(itemId, row);
+    }
+
+    private boolean hasPendingChanges(Long userId) {
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(pendingKey);
+        return pending != null && pending.rowsByUserId.containsKey(userId);
+    }
+
+    private void applyCommitted(Long userId, long version, Map<Long, LedgerColumns.Row> rows) {
+        applyCommitted(histogramsByUserId, userId, version, histogram -> rows.forEach((itemId, row) -> {
+            if (row != null) {
+                histogram.upsert(itemId, LedgerColumns.toCents(row.amount()));
+            } else {
+                histogram.remove(itemId);
+            }
+        }));
+        applyCommitted(columnsByUserId, userId, version, columns -> rows.forEach((itemId, row) -> {
+            if (row != null) {
+                columns.upsert(row);
+            } else {
+                columns.remove(itemId);
+            }
+        }));
+    }
+
+    private static <T> void applyCommitted(Map<Long, Cached<T>> cache, Long userId, long version,
+                                           Consumer<T> change) {
+        Cached<T> entry = cache.get(userId);
+        if (entry == null) {
+            return;
+        }
+
+        synchronized (entry) {
+            // Not loaded yet, or the loaded rows already contain the change
+            if (entry.loadedVersion == UNLOADED || version <= entry.loadedVersion) {
+                return;
+            }
+            // A later commit was applied first and may have changed the same items
+            if (version <= entry.appliedVersion) {
+                cache.remove(userId, entry);
+                return;
+            }
+            change.accept(entry.value);
+            entry.appliedVersion = version;
+        }
+    }
+
+    private double countFrequencyInSql(Long userId, BigDecimal lowerBound, BigDecimal upperBound) {
+        long total = paymentItemRepository.countByUserId(userId);
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) paymentItemRepository.countByUserIdAndAbsAmountBetween(userId, lowerBound, upperBound)
+                / total;
+    }
+
+    private LedgerColumns columnsFor(Long userId) {
+        return cached(columnsByUserId, userId, () -> new LedgerColumns(kernels),
+                columns -> loadColumns(columns, userId));
+    }
+
+    private LedgerColumns loadColumns(LedgerColumns columns, Long userId) {
+        columns.loadIfNeeded(() -> {
+            List<PaymentItemColumnsView> views = paymentItemRepository.findColumnsByUserId(userId);
+            log.debug("Loaded {} payment items into analytics columns for user {}", views.size(), userId);
+            return views.stream()
+                    .map(view -> new LedgerColumns.Row(
+                            view.getId(), view.getDate(), view.getAmount(),
+                            view.getCategoryId(), view.getRecipientId()))
+                    .toList();
+        });
+        return columns;
+    }
+
+    private AmountHistogram histogramFor(Long userId) {
+        return cached(histogramsByUserId, userId, AmountHistogram::new,
+                histogram -> histogram.loadIfNeeded(() -> paymentItemRepository.findColumnsByUserId(userId).stream()
+                        .map(view -> new AmountHistogram.Entry(view.getId(), LedgerColumns.toCents(view.getAmount())))
+                        .toList()));
+    }
+
+    private <T> T cached(Map<Long, Cached<T>> cache, Long userId, Supplier<T> create, Consumer<T> load) {
+        Cached<T> entry = cache.computeIfAbsent(userId, id -> new Cached<>(create.get()));
+        synchronized (entry) {
+            if (entry.loadedVersion == UNLOADED) {
+                // Read before the rows, so the rows contain at least this version
+                long version = dataVersionRepository.findDataVersion(userId);
+                load.accept(entry.value);
+                entry.loadedVersion = version;
+                entry.appliedVersion = version;
+
+                if (TransactionSynchronizationManager.isActualTransactionActive()
+                        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                    // The rows may include uncommitted changes of this transaction
+                    evictAfterCommit(userId);
+                }
+            }
+        }
+        return entry.value;
+    }
+
+    // Bounds beyond the cents range lie beyond every amount, so clamping keeps counts exact
+    private static long clampToCents(BigDecimal bound) {
+        BigDecimal cents = bound.setScale(2, RoundingMode.HALF_UP).movePointRight(2);
+        if (cents.compareTo(MAX_CENTS) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (cents.compareTo(MIN_CENTS) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return cents.longValueExact();
+    }
+
+    // Access-ordered map evicting the least recently used user
+    private static <T> Map<Long, Cached<T>> lruMap(int maxUsers) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Cached<T>> eldest) {
+                return size() > maxUsers;
+            }
+        });
+    }
+
+    private static LedgerColumns.Row toRow(PaymentItem item) {
+        return new LedgerColumns.Row(
+                item.getId(),
+                item.getDate(),
+                item.getAmount(),
+                item.getStandardCategory() != null ? item.getStandardCategory().getId() : null,
+                item.getRecipient() != null ? item.getRecipient().getId() : null);
+    }
+
+    /**
+     * A user's histogram or columns and the data versions they reflect.
+     */
+    private static final class Cached<T> {
+
+        private final T value;
+
+        // Guarded by this
+        private long loadedVersion = UNLOADED;
+        private long appliedVersion = UNLOADED;
+
+        private Cached(T value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Item changes of one transaction, latest per item, patched into the
+     * caches once it commits.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final Map<Long, Map<Long, LedgerColumns.Row>> rowsByUserId = new HashMap<>();
+        private final Map<Long, Long> versionByUserId = new HashMap<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(pendingKey);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(pendingKey, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // The transaction holds the lock on the user's version, so this is the version it commits
+            for (Long userId : rowsByUserId.keySet()) {
+                versionByUserId.put(userId, dataVersionRepository.findDataVersion(userId));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(pendingKey);
+            if (status != STATUS_COMMITTED) {
+                return;
+            }
+
+            rowsByUserId.forEach((userId, rows) -> {
+                Long version = versionByUserId.get(userId);
+                if (version != null) {
+                    applyCommitted(userId, version, rows);
+                } else {
+                    evict(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.financebook.service;
+
+import com.financebook.repository.SyncEntityType;
+
+import java.util.List;
+
+/**
+ * Application event for a committed write to a user's ledger.
+ *
+ * entityType is null for writes that are not part of delta sync
+ * (category types); ids is empty in that case.
+ */
+public record LedgerChangeEvent(
+        Long userId,
+        long version,
+        SyncEntityType entityType,
+        boolean deleted,
+        List<Long> ids
+) {
+}
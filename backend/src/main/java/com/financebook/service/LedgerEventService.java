@@ -0,0 +1,309 @@
+package com.financebook.service;
+
+import com.financebook.dto.response.LedgerChangeResponse;
+import com.financebook.entity.User;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes ledger changes to connected clients as server-sent events.
+ *
+ * Connections are async requests, so idle subscribers hold no servlet
+ * thread. After commit, events go into a small bounded queue per
+ * connection, which a shared executor drains one send at a time. A
+ * connection whose queue overflows or whose send stalls is closed, so a
+ * slow client cannot hold back the others; clients reconnect and recover
+ * the gap from the version numbers through /sync.
+ */
+@Slf4j
+@Service
+public class LedgerEventService {
+
+    // Connection limits
+    private static final int MAX_CONNECTIONS_PER_USER = 5;
+    private static final int MAX_CONNECTIONS = 10_000;
+
+    // Clients reconnect automatically after the timeout
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    // Events with more ids than this are sent without ids
+    private static final int MAX_IDS_PER_EVENT = 100;
+
+    // Per-connection backlog and the longest a single send may block
+    private static final int MAX_PENDING_EVENTS = 100;
+    private static final long SEND_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Fan-out executor; at most one drain task per connection plus one heartbeat task is queued
+    private static final int DISPATCH_THREADS = 4;
+    private static final int DISPATCH_QUEUE_CAPACITY = MAX_CONNECTIONS + 1;
+
+    private final UserRepository userRepository;
+    private final Map<Long, Set<Subscriber>> subscribersByUserId = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ThreadPoolExecutor dispatcher;
+
+    public LedgerEventService(UserRepository userRepository) {
+        this.userRepository = userRepository;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(
+                DISPATCH_THREADS, DISPATCH_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(DISPATCH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ledger-events-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Open an event stream for the user.
+     */
+    public SseEmitter subscribe(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+
+        Subscriber subscriber = new Subscriber(user.getId(), new SseEmitter(EMITTER_TIMEOUT_MS));
+
+        // Limits are checked and the subscriber added under the map's lock for the user
+        subscribersByUserId.compute(user.getId(), (id, subscribers) -> {
+            Set<Subscriber> current = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            if (current.size() >= MAX_CONNECTIONS_PER_USER) {
+                throw new ValidationException("Too many open event streams for this user");
+            }
+            if (connectionCount.incrementAndGet() > MAX_CONNECTIONS) {
+                connectionCount.decrementAndGet();
+                throw new ValidationException("Too many open event streams");
+            }
+            current.add(subscriber);
+            return current;
+        });
+
+        SseEmitter emitter = subscriber.emitter;
+        Runnable remove = () -> unsubscribe(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        return emitter;
+    }
+
+    /**
+     * Queue a committed change for delivery to the user's streams.
+     */
+    @TransactionalEventListener
+    public void onLedgerChange(LedgerChangeEvent event) {
+        Set<Subscriber> subscribers = subscribersByUserId.get(event.userId());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+
+        LedgerChangeResponse payload = LedgerChangeResponse.builder()
+                .version(event.version())
+                .entityType(event.entityType() != null ? event.entityType().name() : null)
+                .deleted(event.deleted())
+                .ids(event.ids().size() <= MAX_IDS_PER_EVENT ? event.ids() : null)
+                .build();
+
+        for (Subscriber subscriber : List.copyOf(subscribers)) {
+            enqueue(subscriber, payload);
+        }
+    }
+
+    /**
+     * Send a comment line to every idle stream so dead connections are
+     * detected and proxies do not close idle ones, and close streams whose
+     * current send has stalled. Streams with events in flight need no
+     * heartbeat.
+     */
+    @Scheduled(fixedRate = 30_000)
+    public void sendHeartbeats() {
+        long now = System.nanoTime();
+        List<Subscriber> idle = new ArrayList<>();
+
+        for (Set<Subscriber> subscribers : subscribersByUserId.values()) {
+            for (Subscriber subscriber : List.copyOf(subscribers)) {
+                if (subscriber.isStalled(now)) {
+                    close(subscriber, null);
+                } else if (subscriber.claimIfIdle()) {
+                    idle.add(subscriber);
+                }
+            }
+        }
+
+        if (idle.isEmpty()) {
+            return;
+        }
+
+        try {
+            dispatcher.execute(() -> {
+                for (Subscriber subscriber : idle) {
+                    deliver(subscriber, SseEmitter.event().comment("heartbeat"));
+                    // Events queued meanwhile are waiting for this claim to end
+                    drain(subscriber);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Closing {} idle ledger event streams: dispatcher rejected the heartbeat", idle.size());
+            idle.forEach(subscriber -> close(subscriber, null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+
+    private void enqueue(Subscriber subscriber, LedgerChangeResponse payload) {
+        boolean overflow = false;
+        boolean startDrain = false;
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            if (subscriber.pending.size() >= MAX_PENDING_EVENTS) {
+                overflow = true;
+            } else {
+                subscriber.pending.add(payload);
+                startDrain = !subscriber.draining;
+                subscriber.draining = true;
+            }
+        }
+
+        if (overflow) {
+            log.debug("Closing ledger event stream for user {}: client is not keeping up", subscriber.userId);
+            close(subscriber, null);
+            return;
+        }
+        if (startDrain) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                log.warn("Closing ledger event stream for user {}: dispatcher rejected it", subscriber.userId);
+                close(subscriber, null);
+            }
+        }
+    }
+
+    // Runs while the caller holds the subscriber's draining claim and releases it
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            LedgerChangeResponse payload;
+            synchronized (subscriber) {
+                payload = subscriber.closed ? null : subscriber.pending.poll();
+                if (payload == null) {
+                    subscriber.draining = false;
+                    return;
+                }
+            }
+
+            deliver(subscriber, SseEmitter.event()
+                    .id(String.valueOf(payload.getVersion()))
+                    .name("change")
+                    .data(payload, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void deliver(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed) {
+            return;
+        }
+
+        subscriber.sendStartedNanos = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Closing ledger event stream for user {}: {}", subscriber.userId, e.getMessage());
+            close(subscriber, e);
+        } finally {
+            subscriber.sendStartedNanos = 0L;
+        }
+    }
+
+    private void close(Subscriber subscriber, Throwable error) {
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            subscriber.closed = true;
+            subscriber.pending.clear();
+        }
+
+        unsubscribe(subscriber);
+        // Completing the async request also fails a write that is still blocked on the client
+        if (error != null) {
+            subscriber.emitter.completeWithError(error);
+        } else {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribersByUserId.computeIfPresent(subscriber.userId, (id, subscribers) -> {
+            if (subscribers.remove(subscriber)) {
+                connectionCount.decrementAndGet();
+            }
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * One open stream with its undelivered events. The draining flag is
+     * held by whichever task currently sends to the stream, so sends to one
+     * stream never overlap and keep their order.
+     */
+    private static final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+
+        // Guarded by this
+        private final Deque<LedgerChangeResponse> pending = new ArrayDeque<>();
+        private boolean draining;
+
+        private volatile boolean closed;
+        private volatile long sendStartedNanos;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        synchronized boolean claimIfIdle() {
+            if (closed || draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        boolean isStalled(long now) {
+            long started = sendStartedNanos;
+            return started != 0L && now - started > SEND_TIMEOUT_NANOS;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.financebook.service;
+
+import com.financebook.entity.PaymentItem;
+import com.financebook.repository.MonthlyRollupDelta;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Accumulates monthly rollup changes for one user before they are written.
+ * Changes to the same month and category are merged, so a bulk import
+ * results in one upsert per touched rollup row.
+ */
+public class MonthlyRollupDeltas {
+    
+    private record Key(LocalDate month, Long categoryId) {
+    }
+    
+    private static final class Sums {
+        private BigDecimal income = BigDecimal.ZERO;
+        private BigDecimal expense = BigDecimal.ZERO;
+        private long count;
+    }
+    
+    private final Map<Key, Sums> sumsByKey = new HashMap<>();
+    
+    /**
+     * Count an item into the rollup.
+     */
+    public MonthlyRollupDeltas add(PaymentItem item) {
+        return add(item.getAmount(), item.getDate(), standardCategoryId(item));
+    }
+    
+    /**
+     * Take an item out of the rollup.
+     */
+    public MonthlyRollupDeltas remove(PaymentItem item) {
+        return remove(item.getAmount(), item.getDate(), standardCategoryId(item));
+    }
+    
+    public MonthlyRollupDeltas add(BigDecimal amount, LocalDateTime date, Long categoryId) {
+        return apply(amount, date, categoryId, 1);
+    }
+    
+    public MonthlyRollupDeltas remove(BigDecimal amount, LocalDateTime date, Long categoryId) {
+        return apply(amount, date, categoryId, -1);
+    }
+    
+    /**
+     * Merge totals already summed elsewhere, e.g. by the database.
+     */
+    public MonthlyRollupDeltas add(MonthlyRollupDelta totals) {
+        Key key = new Key(totals.month().withDayOfMonth(1), totals.categoryId());
+        Sums sums = sumsByKey.computeIfAbsent(key, k -> new Sums());
+        sums.income = sums.income.add(totals.incomeDelta());
+        sums.expense = sums.expense.add(totals.expenseDelta());
+        sums.count += totals.countDelta();
+        return this;
+    }
+    
+    /**
+     * The accumulated non-zero changes.
+     */
+    public List<MonthlyRollupDelta> toDeltas() {
+        List<MonthlyRollupDelta> deltas = new ArrayList<>(sumsByKey.size());
+        for (Map.Entry<Key, Sums> entry : sumsByKey.entrySet()) {
+            Sums sums = entry.getValue();
+            if (sums.count == 0 && sums.income.signum() == 0 && sums.expense.signum() == 0) {
+                continue;
+            }
+            deltas.add(new MonthlyRollupDelta(
+                    entry.getKey().month(), entry.getKey().categoryId(),
+                    sums.income, sums.expense, sums.count));
+        }
+        return deltas;
+    }
+    
+    private MonthlyRollupDeltas apply(BigDecimal amount, LocalDateTime date, Long categoryId, int sign) {
+        Objects.requireNonNull(amount, "amount");
+        Objects.requireNonNull(date, "date");
+        
+        Key key = new Key(date.toLocalDate().withDayOfMonth(1), categoryId);
+        Sums sums = sumsByKey.computeIfAbsent(key, k -> new Sums());
+        
+        BigDecimal signed = sign > 0 ? amount.abs() : amount.abs().negate();
+        if (amount.signum() >= 0) {
+            sums.income = sums.income.add(signed);
+        } else {
+            sums.expense = sums.expense.add(signed);
+        }
+        sums.count += sign;
+        
+        return this;
+    }
+    
+    private static Long standardCategoryId(PaymentItem item) {
+        return item.getStandardCategory() != null ? item.getStandardCategory().getId() : null;
+    }
+}
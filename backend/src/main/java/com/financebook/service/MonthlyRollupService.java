@@ -0,0 +1,51 @@
+package com.financebook.service;
+
+import com.financebook.repository.MonthlyRollupDelta;
+import com.financebook.repository.MonthlyRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Maintains the monthly_rollup table.
+ *
+ * Item writes pass their changes as {@link MonthlyRollupDeltas} inside the
+ * writing transaction, so the rollup always matches committed items.
+ * {@link #rebuild(Long)} recomputes it from scratch for backfills.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MonthlyRollupService {
+    
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    
+    /**
+     * Apply accumulated changes for the user.
+     * Must be called from within the write's transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Long userId, MonthlyRollupDeltas deltas) {
+        List<MonthlyRollupDelta> changes = deltas.toDeltas();
+        if (!changes.isEmpty()) {
+            monthlyRollupRepository.applyDeltas(userId, changes);
+        }
+    }
+    
+    /**
+     * Recompute the rollup from paymentitem.
+     *
+     * @param userId user to rebuild, or null for all users
+     * @return number of rollup rows written
+     */
+    @Transactional
+    public int rebuild(Long userId) {
+        int rows = monthlyRollupRepository.rebuild(userId);
+        log.info("Rebuilt monthly rollup for {}: {} rows", userId != null ? "user " + userId : "all users", rows);
+        return rows;
+    }
+}
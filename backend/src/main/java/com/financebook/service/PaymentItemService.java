@@ -1,25 +1,34 @@
 package com.financebook.service;
 
 import com.financebook.dto.request.PaymentItemCreateRequest;
+import com.financebook.dto.request.PaymentItemListRequest;
 import com.financebook.dto.request.PaymentItemUpdateRequest;
+import com.financebook.dto.response.CategoryReadResponse;
+import com.financebook.dto.response.PaymentItemPageResponse;
 import com.financebook.dto.response.PaymentItemReadResponse;
 import com.financebook.entity.*;
 import com.financebook.exception.ResourceNotFoundException;
 import com.financebook.exception.UnauthorizedException;
 import com.financebook.exception.ValidationException;
 import com.financebook.repository.*;
+import com.financebook.util.Constants;
+import com.financebook.util.CursorCodec;
 import com.financebook.util.DtoMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Payment item service with CRUD operations.
@@ -38,7 +47,14 @@ public class PaymentItemService {
     private final UserRepository userRepository;
     private final TransactionFeeRecordRepository feeRecordRepository;
     private final FeeEngineService feeEngineService;
-    private final CategoryService categoryService;
+    private final PaymentItemReadRepository paymentItemReadRepository;
+    private final ObjectMapper objectMapper;
+    private final DataVersionService dataVersionService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final LedgerAnalyticsService ledgerAnalyticsService;
+
+    // Number of NDJSON lines written between explicit flushes
+    private static final int STREAM_FLUSH_INTERVAL = 100;
 
     /**
      * Create a new payment item with categories and fee application.
@@ -120,12 +136,16 @@ public class PaymentItemService {
                 .build();
 
         item = paymentItemRepository.save(item);
+        ledgerAnalyticsService.recordUpsert(user.getId(), item);
 
         // 5. Compute and apply transaction fee
         BigDecimal fee = feeEngineService.createFeeRecord(item, user.getId());
+        monthlyRollupService.apply(user.getId(), new MonthlyRollupDeltas().add(item));
+        dataVersionService.recordChange(user.getId(), SyncEntityType.PAYMENT_ITEM, item.getId());
 
         // 6. Build response
-        PaymentItemReadResponse response = DtoMapper.toPaymentItemReadResponse(item);
+        PaymentItemReadResponse response = DtoMapper.toPaymentItemReadResponse(
+                item, loadCategoryResponses(user.getId()));
         if (fee.compareTo(BigDecimal.ZERO) > 0) {
             response.setTransactionFee(fee);
         }
@@ -136,71 +156,163 @@ public class PaymentItemService {
     /**
      * Get all payment items with optional filtering.
      * Mirrors Python's list_payment_items endpoint.
+     * Reads flat rows from the read model instead of managed entities.
      */
     @Transactional(readOnly = true)
     public List<PaymentItemReadResponse> getAllPaymentItems(
-            Boolean expenseOnly,
-            Boolean incomeOnly,
-            List<Long> categoryIds,
+            PaymentItemListRequest request,
             String username) {
 
         User user = getUserByUsername(username);
 
-        if (Boolean.TRUE.equals(expenseOnly) && Boolean.TRUE.equals(incomeOnly)) {
-            throw new ValidationException("Choose only one filter: expense_only or income_only");
+        validateListFilters(request);
+
+        PaymentItemFilter filter = buildFilter(request, user.getId());
+        List<PaymentItemRow> rows = paymentItemReadRepository.findAll(filter);
+
+        log.info("Found {} payment items matching the filters", rows.size());
+
+        return DtoMapper.toPaymentItemReadResponseList(rows, loadCategoryResponses(user.getId()));
+    }
+
+    /**
+     * Get one keyset page of payment items with optional filtering.
+     * Items are ordered by (date DESC, id DESC); the returned cursor points
+     * after the last item, so every page costs the same regardless of depth.
+     */
+    @Transactional(readOnly = true)
+    public PaymentItemPageResponse getPaymentItemPage(
+            PaymentItemListRequest request,
+            String cursor,
+            Integer limit,
+            String username) {
+
+        User user = getUserByUsername(username);
+
+        validateListFilters(request);
+
+        int pageSize = limit != null ? limit : Constants.DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > Constants.MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + Constants.MAX_PAGE_SIZE);
         }
 
-        List<PaymentItem> items;
+        CursorCodec.Cursor position = cursor != null && !cursor.isBlank() ? CursorCodec.decode(cursor) : null;
+        PaymentItemFilter filter = buildFilter(request, user.getId());
 
-        // Apply category filtering with descendant expansion
-        if (categoryIds != null && !categoryIds.isEmpty()) {
-            log.info("Filtering with category IDs: {}", categoryIds);
+        // Fetch one extra row to find out whether another page exists
+        List<PaymentItemRow> rows = paymentItemReadRepository.findPage(filter, position, pageSize + 1);
 
-            // Expand category list to include all descendants
-            Set<Long> expandedIds = categoryService.expandCategoryIds(
-                    new HashSet<>(categoryIds), user.getId());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            PaymentItemRow last = rows.get(pageSize - 1);
+            nextCursor = CursorCodec.encode(last.date(), last.id());
+        }
 
-            log.info("Expanded category IDs (including descendants): {}", expandedIds);
+        return PaymentItemPageResponse.builder()
+                .items(DtoMapper.toPaymentItemReadResponseList(rows, loadCategoryResponses(user.getId())))
+                .nextCursor(nextCursor)
+                .build();
+    }
 
-            if (Boolean.TRUE.equals(expenseOnly)) {
-                items = paymentItemRepository.findExpensesByUserIdAndCategoryIdsOrderByDateDesc(
-                        user.getId(), expandedIds);
-            } else if (Boolean.TRUE.equals(incomeOnly)) {
-                items = paymentItemRepository.findIncomesByUserIdAndCategoryIdsOrderByDateDesc(
-                        user.getId(), expandedIds);
-            } else {
-                items = paymentItemRepository.findByUserIdAndCategoryIdsOrderByDateDesc(
-                        user.getId(), expandedIds);
-            }
-        } else if (Boolean.TRUE.equals(expenseOnly)) {
-            items = paymentItemRepository.findExpensesByUserIdOrderByDateDesc(user.getId());
-        } else if (Boolean.TRUE.equals(incomeOnly)) {
-            items = paymentItemRepository.findIncomesByUserIdOrderByDateDesc(user.getId());
-        } else {
-            items = paymentItemRepository.findByUserIdOrderByDateDesc(user.getId());
+    /**
+     * Full-text search over the user's payment descriptions and recipient names.
+     * Results are ordered by relevance and paged with an opaque offset cursor.
+     */
+    @Transactional(readOnly = true)
+    public PaymentItemPageResponse searchPaymentItems(
+            String query,
+            String cursor,
+            Integer limit,
+            String username) {
+
+        User user = getUserByUsername(username);
+
+        String terms = query != null ? query.strip() : "";
+        if (terms.isEmpty()) {
+            throw new ValidationException("Search query cannot be empty");
+        }
+        if (terms.length() > Constants.MAX_SEARCH_QUERY_LENGTH) {
+            throw new ValidationException("Search query exceeds maximum length");
         }
 
-        // Fetch transaction fees efficiently
-        if (!items.isEmpty()) {
-            List<Long> itemIds = items.stream().map(PaymentItem::getId).collect(Collectors.toList());
-            List<TransactionFeeRecord> feeRecords = feeRecordRepository.findByPaymentItemIdIn(itemIds);
+        int pageSize = limit != null ? limit : Constants.DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > Constants.MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
+
+        int offset = cursor != null && !cursor.isBlank() ? CursorCodec.decodeOffset(cursor) : 0;
+
+        // Fetch one extra row to find out whether another page exists
+        List<PaymentItemRow> rows = paymentItemReadRepository.search(user.getId(), terms, offset, pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = CursorCodec.encodeOffset(offset + pageSize);
+        }
+
+        return PaymentItemPageResponse.builder()
+                .items(DtoMapper.toPaymentItemReadResponseList(rows, loadCategoryResponses(user.getId())))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Stream all payment items matching the filters to the given output
+     * as newline-delimited JSON, one PaymentItemReadResponse per line.
+     * Rows are read through a forward-only cursor and written one by one,
+     * so memory use does not grow with the size of the result.
+     */
+    @Transactional(readOnly = true)
+    public void streamPaymentItems(
+            PaymentItemListRequest request,
+            String username,
+            OutputStream out) throws IOException {
+
+        User user = getUserByUsername(username);
+        validateListFilters(request);
+
+        PaymentItemFilter filter = buildFilter(request, user.getId());
+        Map<Long, CategoryReadResponse> categoriesById = loadCategoryResponses(user.getId());
+        ObjectWriter writer = objectMapper.writerFor(PaymentItemReadResponse.class);
+        int[] written = {0};
 
-            Map<Long, BigDecimal> feeMap = feeRecords.stream()
-                    .collect(Collectors.toMap(
-                            r -> r.getPaymentItem().getId(),
-                            TransactionFeeRecord::getFeeAmount));
+        try {
+            paymentItemReadRepository.stream(filter, row -> {
+                try {
+                    out.write(writer.writeValueAsBytes(DtoMapper.toPaymentItemReadResponse(row, categoriesById)));
+                    out.write('\n');
 
-            // Set transaction fees on items
-            for (PaymentItem item : items) {
-                if (feeMap.containsKey(item.getId())) {
-                    item.setTransactionFee(feeMap.get(item.getId()));
+                    if (++written[0] % STREAM_FLUSH_INTERVAL == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
 
-        log.info("Found {} payment items matching the filters", items.size());
+        out.flush();
+        log.info("Streamed {} payment items", written[0]);
+    }
 
-        return DtoMapper.toPaymentItemReadResponseList(items);
+    /**
+     * Reject contradictory or empty filter combinations.
+     */
+    public void validateListFilters(PaymentItemListRequest request) {
+        if (Boolean.TRUE.equals(request.getExpenseOnly()) && Boolean.TRUE.equals(request.getIncomeOnly())) {
+            throw new ValidationException("Choose only one filter: expense_only or income_only");
+        }
+        if (request.getFrom() != null && request.getTo() != null && request.getFrom().isAfter(request.getTo())) {
+            throw new ValidationException("from must not be after to");
+        }
+        if (request.getMinAmount() != null && request.getMaxAmount() != null
+                && request.getMinAmount().compareTo(request.getMaxAmount()) > 0) {
+            throw new ValidationException("min_amount must not be greater than max_amount");
+        }
     }
 
     /**
@@ -223,7 +335,7 @@ public class PaymentItemService {
             item.setTransactionFee(feeRecord.getFeeAmount());
         }
 
-        return DtoMapper.toPaymentItemReadResponse(item);
+        return DtoMapper.toPaymentItemReadResponse(item, loadCategoryResponses(user.getId()));
     }
 
     /**
@@ -247,10 +359,12 @@ public class PaymentItemService {
             throw new UnauthorizedException("Not authorized to update this item");
         }
 
-        // Update basic fields
-        if (request.getAmount() != null) {
-            item.setAmount(request.getAmount());
-        }
+        // Take the old values out of the monthly rollup
+        MonthlyRollupDeltas rollupDeltas = new MonthlyRollupDeltas().remove(item);
+
+        // Update basic fields; a new amount is charged fees again below
+        boolean amountChanged = request.getAmount() != null
+                && request.getAmount().compareTo(item.getAmount()) != 0;
         if (request.getDate() != null) {
             item.setDate(request.getDate());
         }
@@ -327,15 +441,22 @@ public class PaymentItemService {
             item.setStandardCategory(newStandardCategory);
         }
 
+        // Recompute fee if amount changed
+        if (amountChanged) {
+            feeEngineService.recomputeFeeRecord(item, request.getAmount(), user.getId());
+        }
+
         // Save changes
         item = paymentItemRepository.save(item);
-
-        // Recompute fee if amount changed
+        monthlyRollupService.apply(user.getId(), rollupDeltas.add(item));
+        ledgerAnalyticsService.recordUpsert(user.getId(), item);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.PAYMENT_ITEM, item.getId());
 
         // Fetch updated fee
         TransactionFeeRecord feeRecord = feeRecordRepository.findByPaymentItemId(itemId).orElse(null);
 
-        PaymentItemReadResponse response = DtoMapper.toPaymentItemReadResponse(item);
+        PaymentItemReadResponse response = DtoMapper.toPaymentItemReadResponse(
+                item, loadCategoryResponses(user.getId()));
         if (feeRecord != null) {
             response.setTransactionFee(feeRecord.getFeeAmount());
         }
@@ -379,10 +500,48 @@ public class PaymentItemService {
 
         // Delete payment item (categories will be removed automatically via cascade)
         paymentItemRepository.delete(item);
+        monthlyRollupService.apply(user.getId(), new MonthlyRollupDeltas().remove(item));
+        ledgerAnalyticsService.recordRemoval(user.getId(), itemId);
+        dataVersionService.recordDeletion(user.getId(), SyncEntityType.PAYMENT_ITEM, itemId);
 
         log.info("Successfully deleted payment item {}", itemId);
     }
 
+    /**
+     * Translate request filters into read-model criteria.
+     * Category ids are passed as roots; the read model expands their
+     * descendants in the same query.
+     */
+    private PaymentItemFilter buildFilter(PaymentItemListRequest request, Long userId) {
+        List<Long> categoryIds = request.getCategoryIds();
+
+        Set<Long> rootCategoryIds = null;
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            log.info("Filtering with category IDs (including descendants): {}", categoryIds);
+            rootCategoryIds = new HashSet<>(categoryIds);
+        }
+
+        return PaymentItemFilter.builder()
+                .userId(userId)
+                .expenseOnly(Boolean.TRUE.equals(request.getExpenseOnly()))
+                .incomeOnly(Boolean.TRUE.equals(request.getIncomeOnly()))
+                .categoryIds(rootCategoryIds)
+                .dateFrom(request.getFrom() != null ? request.getFrom().atStartOfDay() : null)
+                .dateUntil(request.getTo() != null ? request.getTo().plusDays(1).atStartOfDay() : null)
+                .minAmount(request.getMinAmount())
+                .maxAmount(request.getMaxAmount())
+                .recipientId(request.getRecipientId())
+                .build();
+    }
+
+    /**
+     * Build category responses for all categories of a user once per request.
+     * Listed items share these instances instead of mapping categories per row.
+     */
+    private Map<Long, CategoryReadResponse> loadCategoryResponses(Long userId) {
+        return DtoMapper.toCategoryReadResponseMap(categoryRepository.findByUserId(userId));
+    }
+
     /**
      * Get user by username.
      */
@@ -9,6 +9,7 @@ import com.financebook.exception.ResourceNotFoundException;
 import com.financebook.exception.UnauthorizedException;
 import com.financebook.exception.ValidationException;
 import com.financebook.repository.RecipientRepository;
+import com.financebook.repository.SyncEntityType;
 import com.financebook.repository.UserRepository;
 import com.financebook.util.Constants;
 import com.financebook.util.DtoMapper;
@@ -31,6 +32,7 @@ public class RecipientService {
     
     private final RecipientRepository recipientRepository;
     private final UserRepository userRepository;
+    private final DataVersionService dataVersionService;
     
     /**
      * Create a new recipient with normalized name.
@@ -62,6 +64,7 @@ public class RecipientService {
                 .build();
         
         recipient = recipientRepository.save(recipient);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.RECIPIENT, recipient.getId());
         
         return DtoMapper.toRecipientReadResponse(recipient);
     }
@@ -138,6 +141,7 @@ public class RecipientService {
         }
         
         recipient = recipientRepository.save(recipient);
+        dataVersionService.recordChange(user.getId(), SyncEntityType.RECIPIENT, recipient.getId());
         
         return DtoMapper.toRecipientReadResponse(recipient);
     }
@@ -0,0 +1,169 @@
+package com.financebook.service;
+
+import com.financebook.analytics.LedgerColumns;
+import com.financebook.dto.response.CategoryStatisticsResponse;
+import com.financebook.dto.response.MonthlyStatisticsResponse;
+import com.financebook.entity.Category;
+import com.financebook.entity.User;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.CategoryRepository;
+import com.financebook.repository.CategoryTotalsRow;
+import com.financebook.repository.MonthlyRollupRepository;
+import com.financebook.repository.StatisticsRepository;
+import com.financebook.repository.UserRepository;
+import com.financebook.util.DtoMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Statistics service for aggregated views of the ledger.
+ * Totals are computed in the database, or over the in-memory analytics
+ * columns when those are enabled.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatisticsService {
+    
+    private final StatisticsRepository statisticsRepository;
+    private final MonthlyRollupRepository monthlyRollupRepository;
+    private final CategoryRepository categoryRepository;
+    private final LedgerAnalyticsService ledgerAnalyticsService;
+    private final UserRepository userRepository;
+    
+    /**
+     * Income and expense totals per standard category, rolled up through
+     * the category hierarchy and optionally limited to a date range.
+     *
+     * @param from     first day to include, or null
+     * @param to       last day to include, or null
+     * @param username current user
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryStatisticsResponse> getTotalsByCategory(LocalDate from, LocalDate to, String username) {
+        User user = getUserByUsername(username);
+        
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ValidationException("from must not be after to");
+        }
+        
+        if (ledgerAnalyticsService.isEnabled()) {
+            LocalDate until = to != null ? to.plusDays(1) : null;
+            return DtoMapper.toCategoryStatisticsResponseList(rollUpInMemory(user.getId(), from, until));
+        }
+        
+        LocalDateTime dateFrom = from != null ? from.atStartOfDay() : null;
+        LocalDateTime dateUntil = to != null ? to.plusDays(1).atStartOfDay() : null;
+        
+        return DtoMapper.toCategoryStatisticsResponseList(
+                statisticsRepository.findCategoryTotals(user.getId(), dateFrom, dateUntil));
+    }
+    
+    /**
+     * Income and expense totals per month, read from the monthly rollup.
+     * The range is widened to whole months.
+     *
+     * @param from     a day in the first month to include, or null
+     * @param to       a day in the last month to include, or null
+     * @param username current user
+     */
+    @Transactional(readOnly = true)
+    public List<MonthlyStatisticsResponse> getMonthlyTotals(LocalDate from, LocalDate to, String username) {
+        User user = getUserByUsername(username);
+        
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ValidationException("from must not be after to");
+        }
+        
+        LocalDate monthFrom = from != null ? from.withDayOfMonth(1) : null;
+        LocalDate monthTo = to != null ? to.withDayOfMonth(1) : null;
+        
+        return DtoMapper.toMonthlyStatisticsResponseList(
+                monthlyRollupRepository.findMonthlyTotals(user.getId(), monthFrom, monthTo));
+    }
+    
+    /**
+     * Same result as {@link StatisticsRepository#findCategoryTotals}, computed
+     * from the analytics columns and the user's category tree.
+     */
+    private List<CategoryTotalsRow> rollUpInMemory(Long userId, LocalDate from, LocalDate until) {
+        List<LedgerColumns.CategoryTotals> own = ledgerAnalyticsService.totalsByCategory(userId, from, until);
+        
+        Map<Long, Category> categoriesById = new HashMap<>();
+        for (Category category : categoryRepository.findByUserId(userId)) {
+            categoriesById.put(category.getId(), category);
+        }
+        
+        Map<Long, LedgerColumns.CategoryTotals> ownById = new HashMap<>();
+        Map<Long, long[]> rolledById = new HashMap<>();
+        List<CategoryTotalsRow> rows = new ArrayList<>();
+        
+        for (LedgerColumns.CategoryTotals totals : own) {
+            if (totals.categoryId() == null) {
+                rows.add(new CategoryTotalsRow(null, null, null,
+                        cents(totals.incomeCents()), cents(totals.expenseCents()),
+                        cents(totals.incomeCents()), cents(totals.expenseCents()),
+                        totals.count()));
+                continue;
+            }
+            ownById.put(totals.categoryId(), totals);
+            
+            // Add to the category and each ancestor; the visited set guards against cycles
+            Set<Long> visited = new HashSet<>();
+            Category current = categoriesById.get(totals.categoryId());
+            while (current != null && visited.add(current.getId())) {
+                long[] rolled = rolledById.computeIfAbsent(current.getId(), id -> new long[3]);
+                rolled[0] += totals.incomeCents();
+                rolled[1] += totals.expenseCents();
+                rolled[2] += totals.count();
+                current = current.getParent() != null ? categoriesById.get(current.getParent().getId()) : null;
+            }
+        }
+        
+        for (Map.Entry<Long, long[]> entry : rolledById.entrySet()) {
+            Category category = categoriesById.get(entry.getKey());
+            LedgerColumns.CategoryTotals ownTotals = ownById.get(entry.getKey());
+            long[] rolled = entry.getValue();
+            rows.add(new CategoryTotalsRow(
+                    category.getId(),
+                    category.getName(),
+                    category.getParent() != null ? category.getParent().getId() : null,
+                    cents(ownTotals != null ? ownTotals.incomeCents() : 0),
+                    cents(ownTotals != null ? ownTotals.expenseCents() : 0),
+                    cents(rolled[0]),
+                    cents(rolled[1]),
+                    rolled[2]));
+        }
+        
+        rows.sort(Comparator.comparing(CategoryTotalsRow::totalExpense)
+                .thenComparing(CategoryTotalsRow::totalIncome)
+                .reversed());
+        return rows;
+    }
+    
+    private static BigDecimal cents(long value) {
+        return BigDecimal.valueOf(value, 2);
+    }
+    
+    /**
+     * Get user by username.
+     */
+    private User getUserByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.financebook.service;
+
+import com.financebook.dto.response.CategoryReadResponse;
+import com.financebook.dto.response.SyncResponse;
+import com.financebook.dto.response.SyncTombstoneResponse;
+import com.financebook.exception.ResourceNotFoundException;
+import com.financebook.exception.ValidationException;
+import com.financebook.repository.*;
+import com.financebook.util.DtoMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delta sync of payment items, categories and recipients.
+ *
+ * Returns the rows written after a client-supplied data version plus
+ * tombstones for rows deleted since then. All reads run on one snapshot,
+ * so the returned version matches the returned rows exactly.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncService {
+    
+    // Rows that predate versioning carry version 0; a full sync must include them
+    private static final long FULL_SYNC_SINCE = -1L;
+    
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final RecipientRepository recipientRepository;
+    private final PaymentItemReadRepository paymentItemReadRepository;
+    private final DataVersionRepository dataVersionRepository;
+    
+    /**
+     * Get all changes after the given version.
+     *
+     * @param since    version from the client's previous sync, or null for a full sync
+     * @param username current user
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SyncResponse getChangesSince(Long since, String username) {
+        if (since != null && since < 0) {
+            throw new ValidationException("since must not be negative");
+        }
+        
+        UserDataVersion current = userRepository.findDataVersionByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        Long userId = current.getUserId();
+        
+        boolean fullSync = since == null;
+        long after = fullSync ? FULL_SYNC_SINCE : since;
+        
+        List<PaymentItemRow> changedItems = paymentItemReadRepository.findModifiedSince(userId, after);
+        List<Long> changedCategoryIds = categoryRepository.findIdsModifiedSince(userId, after);
+        
+        // Item and category responses embed categories with their children,
+        // which needs the whole tree; it is small per user
+        Map<Long, CategoryReadResponse> categoriesById = changedItems.isEmpty() && changedCategoryIds.isEmpty()
+                ? Collections.emptyMap()
+                : DtoMapper.toCategoryReadResponseMap(categoryRepository.findByUserId(userId));
+        
+        List<SyncTombstoneResponse> deleted = fullSync
+                ? Collections.emptyList()
+                : dataVersionRepository.findTombstonesSince(userId, after).stream()
+                        .map(row -> SyncTombstoneResponse.builder()
+                                .entityType(row.entityType().name())
+                                .id(row.entityId())
+                                .version(row.version())
+                                .build())
+                        .toList();
+        
+        return SyncResponse.builder()
+                .version(current.getDataVersion())
+                .fullSync(fullSync)
+                .paymentItems(DtoMapper.toPaymentItemReadResponseList(changedItems, categoriesById))
+                .categories(changedCategoryIds.stream()
+                        .map(categoriesById::get)
+                        .toList())
+                .recipients(DtoMapper.toRecipientReadResponseList(
+                        recipientRepository.findModifiedSince(userId, after)))
+                .deleted(deleted)
+                .build();
+    }
+}
@@ -34,6 +34,13 @@ public final class Constants {
     // File upload constraints
     public static final long MAX_INVOICE_SIZE = 25 * 1024 * 1024; // 25MB
     
+    // Pagination constraints
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    // Search constraints
+    public static final int MAX_SEARCH_QUERY_LENGTH = 200;
+
     // Fee constraints
     public static final double MIN_FEE_THRESHOLD = 0.01; // Minimum fee to apply
 }
@@ -0,0 +1,99 @@
+package com.financebook.util;
+
+import com.financebook.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Utility class for opaque keyset pagination cursors.
+ *
+ * A cursor encodes the (date, id) position of the last item on a page.
+ * The next page starts strictly after that position in (date DESC, id DESC) order,
+ * so its cost does not depend on how deep into the history the client is.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = "|";
+
+    // Prevent instantiation
+    private CursorCodec() {
+        throw new AssertionError("Utility class should not be instantiated");
+    }
+
+    /**
+     * Position of the last item returned on a page.
+     */
+    public record Cursor(LocalDateTime date, Long id) {
+    }
+
+    /**
+     * Encode a (date, id) position into a URL-safe token.
+     *
+     * @param date date of the last item on the page
+     * @param id   id of the last item on the page
+     * @return opaque cursor token
+     */
+    public static String encode(LocalDateTime date, Long id) {
+        String raw = date.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encode a result offset into a URL-safe token.
+     * Used for relevance-ranked results, which have no stable keyset order.
+     *
+     * @param offset number of results already returned
+     * @return opaque cursor token
+     */
+    public static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token produced by {@link #encodeOffset(int)}.
+     *
+     * @param token opaque cursor token
+     * @return decoded offset
+     * @throws ValidationException if the token is malformed
+     */
+    public static int decodeOffset(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int offset = Integer.parseInt(raw);
+            if (offset < 0) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return offset;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Decode a token produced by {@link #encode(LocalDateTime, Long)}.
+     *
+     * @param token opaque cursor token
+     * @return decoded position
+     * @throws ValidationException if the token is malformed
+     */
+    public static Cursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            if (separatorIndex <= 0) {
+                throw new ValidationException("Invalid cursor");
+            }
+
+            LocalDateTime date = LocalDateTime.parse(raw.substring(0, separatorIndex));
+            Long id = Long.valueOf(raw.substring(separatorIndex + 1));
+            return new Cursor(date, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
@@ -2,10 +2,20 @@ package com.financebook.util;
 
 import com.financebook.dto.response.*;
 import com.financebook.entity.*;
+import com.financebook.repository.CategoryTotalsRow;
+import com.financebook.repository.MonthlyTotalsRow;
+import com.financebook.repository.PaymentItemRow;
+import com.financebook.service.FeeRecomputeJob;
+import com.financebook.service.ImportJob;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -98,6 +108,87 @@ public final class DtoMapper {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Map a category using a preloaded parent → children index instead of
+     * the lazy children collection, so building the subtree issues no queries.
+     */
+    public static CategoryReadResponse toCategoryReadResponse(
+            Category category,
+            Map<Long, List<Category>> childrenByParentId) {
+        if (category == null) {
+            return null;
+        }
+        
+        List<Category> children = childrenByParentId.getOrDefault(category.getId(), Collections.emptyList());
+        
+        return CategoryReadResponse.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .typeId(category.getType() != null ? category.getType().getId() : null)
+                .parentId(category.getParent() != null ? category.getParent().getId() : null)
+                .iconFile(category.getIconFile())
+                .children(toCategoryReadResponseList(children, childrenByParentId))
+                .build();
+    }
+    
+    public static List<CategoryReadResponse> toCategoryReadResponseList(
+            List<Category> categories,
+            Map<Long, List<Category>> childrenByParentId) {
+        if (categories == null) {
+            return Collections.emptyList();
+        }
+        
+        return categories.stream()
+                .map(category -> toCategoryReadResponse(category, childrenByParentId))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Build a parent id → children index from all categories of a user.
+     * Only the parent's id is read, so parent proxies are not initialized.
+     */
+    public static Map<Long, List<Category>> indexChildrenByParentId(List<Category> categories) {
+        Map<Long, List<Category>> childrenByParentId = new HashMap<>();
+        for (Category category : categories) {
+            if (category.getParent() != null) {
+                childrenByParentId
+                        .computeIfAbsent(category.getParent().getId(), id -> new ArrayList<>())
+                        .add(category);
+            }
+        }
+        return childrenByParentId;
+    }
+    
+    /**
+     * Build responses for all categories of a user in one pass, keyed by id.
+     * Each response's children list links to the other responses in the map,
+     * so every subtree is available without recursion or further queries.
+     */
+    public static Map<Long, CategoryReadResponse> toCategoryReadResponseMap(List<Category> categories) {
+        Map<Long, CategoryReadResponse> categoriesById = new LinkedHashMap<>();
+        for (Category category : categories) {
+            categoriesById.put(category.getId(), CategoryReadResponse.builder()
+                    .id(category.getId())
+                    .name(category.getName())
+                    .typeId(category.getType() != null ? category.getType().getId() : null)
+                    .parentId(category.getParent() != null ? category.getParent().getId() : null)
+                    .iconFile(category.getIconFile())
+                    .children(new ArrayList<>())
+                    .build());
+        }
+        
+        for (CategoryReadResponse category : categoriesById.values()) {
+            if (category.getParentId() != null) {
+                CategoryReadResponse parent = categoriesById.get(category.getParentId());
+                if (parent != null) {
+                    parent.getChildren().add(category);
+                }
+            }
+        }
+        
+        return categoriesById;
+    }
+    
     // ─── CategoryType Mapping ────────────────────────────────────────
     
     public static CategoryTypeReadResponse toCategoryTypeReadResponse(CategoryType categoryType) {
@@ -149,6 +240,46 @@ public final class DtoMapper {
                 .build();
     }
     
+    /**
+     * Map an entity, taking category responses from a per-request map
+     * instead of walking the lazy category trees. Only the ids of the item's
+     * categories are read.
+     */
+    public static PaymentItemReadResponse toPaymentItemReadResponse(
+            PaymentItem item,
+            Map<Long, CategoryReadResponse> categoriesById) {
+        if (item == null) {
+            return null;
+        }
+        
+        List<CategoryReadResponse> categories = new ArrayList<>();
+        if (item.getCategories() != null) {
+            for (Category category : item.getCategories()) {
+                CategoryReadResponse response = categoriesById.get(category.getId());
+                if (response != null) {
+                    categories.add(response);
+                }
+            }
+        }
+        Long standardCategoryId = item.getStandardCategory() != null ? item.getStandardCategory().getId() : null;
+        
+        return PaymentItemReadResponse.builder()
+                .id(item.getId())
+                .amount(item.getAmount())
+                .date(item.getDate())
+                .periodic(item.getPeriodic())
+                .description(item.getDescription())
+                .invoicePath(item.getInvoicePath())
+                .productImagePath(item.getProductImagePath())
+                .recipient(toRecipientReadResponse(item.getRecipient()))
+                .recipientId(item.getRecipient() != null ? item.getRecipient().getId() : null)
+                .categories(categories)
+                .standardCategory(standardCategoryId != null ? categoriesById.get(standardCategoryId) : null)
+                .standardCategoryId(standardCategoryId)
+                .transactionFee(item.getTransactionFee())
+                .build();
+    }
+    
     public static List<PaymentItemReadResponse> toPaymentItemReadResponseList(List<PaymentItem> items) {
         if (items == null) {
             return Collections.emptyList();
@@ -158,4 +289,157 @@ public final class DtoMapper {
                 .map(DtoMapper::toPaymentItemReadResponse)
                 .collect(Collectors.toList());
     }
+    
+    /**
+     * Map a flat read-model row to a response.
+     * Category responses are shared instances taken from a per-request map.
+     */
+    public static PaymentItemReadResponse toPaymentItemReadResponse(
+            PaymentItemRow row,
+            Map<Long, CategoryReadResponse> categoriesById) {
+        if (row == null) {
+            return null;
+        }
+        
+        RecipientReadResponse recipient = row.recipientId() != null ?
+                RecipientReadResponse.builder()
+                        .id(row.recipientId())
+                        .name(row.recipientName())
+                        .address(row.recipientAddress())
+                        .build() : null;
+        
+        List<CategoryReadResponse> categories = new ArrayList<>(row.categoryIds().size());
+        for (Long categoryId : row.categoryIds()) {
+            CategoryReadResponse category = categoriesById.get(categoryId);
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        
+        return PaymentItemReadResponse.builder()
+                .id(row.id())
+                .amount(row.amount())
+                .date(row.date())
+                .periodic(row.periodic())
+                .description(row.description())
+                .invoicePath(row.invoicePath())
+                .productImagePath(row.productImagePath())
+                .recipient(recipient)
+                .recipientId(row.recipientId())
+                .categories(categories)
+                .standardCategory(row.standardCategoryId() != null ?
+                        categoriesById.get(row.standardCategoryId()) : null)
+                .standardCategoryId(row.standardCategoryId())
+                .transactionFee(row.transactionFee())
+                .build();
+    }
+    
+    public static List<PaymentItemReadResponse> toPaymentItemReadResponseList(
+            List<PaymentItemRow> rows,
+            Map<Long, CategoryReadResponse> categoriesById) {
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        
+        return rows.stream()
+                .map(row -> toPaymentItemReadResponse(row, categoriesById))
+                .collect(Collectors.toList());
+    }
+    
+    // ─── Statistics Mapping ──────────────────────────────────────────
+    
+    public static CategoryStatisticsResponse toCategoryStatisticsResponse(CategoryTotalsRow row) {
+        if (row == null) {
+            return null;
+        }
+        
+        return CategoryStatisticsResponse.builder()
+                .categoryId(row.categoryId())
+                .name(row.name())
+                .parentId(row.parentId())
+                .ownIncome(row.ownIncome())
+                .ownExpense(row.ownExpense())
+                .totalIncome(row.totalIncome())
+                .totalExpense(row.totalExpense())
+                .itemCount(row.itemCount())
+                .build();
+    }
+    
+    public static List<CategoryStatisticsResponse> toCategoryStatisticsResponseList(List<CategoryTotalsRow> rows) {
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        
+        return rows.stream()
+                .map(DtoMapper::toCategoryStatisticsResponse)
+                .collect(Collectors.toList());
+    }
+    
+    public static MonthlyStatisticsResponse toMonthlyStatisticsResponse(MonthlyTotalsRow row) {
+        if (row == null) {
+            return null;
+        }
+        
+        return MonthlyStatisticsResponse.builder()
+                .month(YearMonth.from(row.month()).toString())
+                .income(row.income())
+                .expense(row.expense())
+                .balance(row.income().subtract(row.expense()))
+                .itemCount(row.itemCount())
+                .build();
+    }
+    
+    public static List<MonthlyStatisticsResponse> toMonthlyStatisticsResponseList(List<MonthlyTotalsRow> rows) {
+        if (rows == null) {
+            return Collections.emptyList();
+        }
+        
+        return rows.stream()
+                .map(DtoMapper::toMonthlyStatisticsResponse)
+                .collect(Collectors.toList());
+    }
+    
+    // ─── Fee Recompute Mapping ───────────────────────────────────────
+    
+    public static FeeRecomputeJobResponse toFeeRecomputeJobResponse(FeeRecomputeJob job) {
+        if (job == null) {
+            return null;
+        }
+        
+        return FeeRecomputeJobResponse.builder()
+                .id(job.getId())
+                .userId(job.getUserId())
+                .status(job.getStatus().name().toLowerCase())
+                .totalItems(job.getTotalItems())
+                .processedItems(job.getProcessedItems().get())
+                .changedItems(job.getChangedItems().get())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+    
+    // ─── Import Job Mapping ──────────────────────────────────────────
+    
+    public static ImportJobResponse toImportJobResponse(ImportJob job) {
+        if (job == null) {
+            return null;
+        }
+        
+        return ImportJobResponse.builder()
+                .id(job.getId())
+                .status(job.getStatus().name().toLowerCase())
+                .rowsProcessed(job.getRowsProcessed().get())
+                .rowsFailed(job.getRowsFailed().get())
+                .rowsPerSecond(job.getRowsPerSecond())
+                .createdPayments(job.getCreatedPayments().get())
+                .createdRecipients(job.getCreatedRecipients().get())
+                .updatedRecipients(job.getUpdatedRecipients().get())
+                .createdCategories(job.getCreatedCategories().get())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
 }
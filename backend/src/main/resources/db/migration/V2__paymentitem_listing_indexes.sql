@@ -0,0 +1,11 @@
+-- Composite indexes for payment item listings
+-- Listings filter by user and order by (date DESC, id DESC), optionally restricted
+-- to a date range, an amount range or a recipient. A single composite index serves
+-- the ordering, keyset pagination and date ranges; it supersedes the single-column
+-- user and date indexes.
+
+CREATE INDEX idx_paymentitem_user_date_id ON paymentitem(user_id, date DESC, id DESC);
+CREATE INDEX idx_paymentitem_user_recipient_date ON paymentitem(user_id, recipient_id, date DESC);
+
+DROP INDEX IF EXISTS idx_paymentitem_user;
+DROP INDEX IF EXISTS idx_paymentitem_date;
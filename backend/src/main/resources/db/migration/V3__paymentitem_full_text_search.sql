@@ -0,0 +1,16 @@
+-- Full-text search over payment descriptions and recipient names
+-- Generated tsvector columns are maintained by PostgreSQL on every insert and
+-- update, so no application code or trigger has to keep them current. The
+-- 'simple' configuration does not stem or drop stop words, which keeps
+-- matching predictable for names and mixed-language descriptions.
+
+ALTER TABLE paymentitem
+    ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(description, ''))) STORED;
+
+ALTER TABLE recipient
+    ADD COLUMN search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('simple', coalesce(name, ''))) STORED;
+
+CREATE INDEX idx_paymentitem_search ON paymentitem USING GIN (search_vector);
+CREATE INDEX idx_recipient_search ON recipient USING GIN (search_vector);
@@ -0,0 +1,6 @@
+-- Per-user data version
+-- Bumped in the same transaction as every write to a user's payment items,
+-- categories, category types or recipients. List endpoints expose it as an
+-- ETag so unchanged lists can be answered with 304 Not Modified.
+
+ALTER TABLE "user" ADD COLUMN data_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,24 @@
+-- Delta sync support
+-- Rows carry the user's data version of their last write, so a client can ask
+-- for everything changed after the version it last saw. Deleted rows leave a
+-- tombstone with the version of the deletion. Rows that predate this migration
+-- keep version 0 and are only returned by a full sync.
+
+ALTER TABLE paymentitem ADD COLUMN last_modified_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE category ADD COLUMN last_modified_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE recipient ADD COLUMN last_modified_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_paymentitem_user_version ON paymentitem(user_id, last_modified_version);
+CREATE INDEX idx_category_user_version ON category(user_id, last_modified_version);
+CREATE INDEX idx_recipient_user_version ON recipient(user_id, last_modified_version);
+
+CREATE TABLE sync_tombstone (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES "user"(id) ON DELETE CASCADE NOT NULL,
+    entity_type VARCHAR(32) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_sync_tombstone_user_version ON sync_tombstone(user_id, version);
@@ -0,0 +1,7 @@
+-- Covering index for category statistics
+-- Aggregations read only user_id, date, standard_category_id and amount, so
+-- with the last two as included columns they run as index-only scans over the
+-- requested date range without touching the table heap.
+
+CREATE INDEX idx_paymentitem_user_date_stats ON paymentitem(user_id, date)
+    INCLUDE (standard_category_id, amount);
@@ -0,0 +1,28 @@
+-- Monthly rollup of payment items per standard category
+-- Maintained with deltas in the same transaction as every item write, so
+-- monthly time series and summaries no longer scan paymentitem. Expenses are
+-- stored as positive sums. Items without a category roll up under a NULL
+-- category_id, which the unique index folds into a single row per month.
+
+CREATE TABLE monthly_rollup (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT REFERENCES "user"(id) ON DELETE CASCADE NOT NULL,
+    month DATE NOT NULL,
+    category_id BIGINT,
+    income_sum NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    expense_sum NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    count BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE UNIQUE INDEX idx_monthly_rollup_key ON monthly_rollup(user_id, month, (COALESCE(category_id, 0)));
+
+-- Backfill from existing items
+INSERT INTO monthly_rollup (user_id, month, category_id, income_sum, expense_sum, count)
+SELECT p.user_id,
+       date_trunc('month', p.date)::date,
+       p.standard_category_id,
+       SUM(CASE WHEN p.amount >= 0 THEN p.amount ELSE 0 END),
+       SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END),
+       COUNT(*)
+FROM paymentitem p
+GROUP BY p.user_id, date_trunc('month', p.date)::date, p.standard_category_id;
@@ -0,0 +1,19 @@
+-- Staging table for COPY-based CSV imports
+-- Large imports COPY their parsed lines here and then insert recipients,
+-- categories and payment items with set-based statements. Rows only live
+-- for the importing transaction, so the table is UNLOGGED: no WAL is
+-- written for them and a crash merely empties it.
+
+CREATE UNLOGGED TABLE import_staging (
+    import_id VARCHAR(36) NOT NULL,
+    line_no BIGINT NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    date TIMESTAMP NOT NULL,
+    periodic BOOLEAN NOT NULL,
+    description VARCHAR(1000),
+    recipient_name VARCHAR(255),
+    recipient_address VARCHAR(500),
+    category_name VARCHAR(255)
+);
+
+CREATE INDEX idx_import_staging_import ON import_staging(import_id, line_no);
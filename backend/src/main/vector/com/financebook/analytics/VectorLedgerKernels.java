@@ -0,0 +1,116 @@
+package com.financebook.analytics;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernels on the incubating Vector API.
+ *
+ * Each loop processes full vectors of the preferred species and finishes
+ * the remainder with the scalar loop. Compiled only with the Maven profile
+ * simd, since javac warns about every use of an incubator module, and only
+ * instantiated through {@link LedgerKernels#create(boolean)}, which checks
+ * that the jdk.incubator.vector module was added at startup.
+ */
+final class VectorLedgerKernels implements LedgerKernels {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    // Codes read alongside a vector of longs, so with the same number of lanes
+    private static final VectorSpecies<Integer> CODES =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    @Override
+    public long countAbsInRange(long[] values, int length, long low, long high) {
+        int upper = LONGS.loopBound(length);
+        long count = 0;
+        int i = 0;
+        for (; i < upper; i += LONGS.length()) {
+            LongVector abs = LongVector.fromArray(LONGS, values, i).lanewise(VectorOperators.ABS);
+            VectorMask<Long> inRange = abs.compare(VectorOperators.GE, low)
+                    .and(abs.compare(VectorOperators.LT, high));
+            count += inRange.trueCount();
+        }
+        for (; i < length; i++) {
+            long abs = Math.abs(values[i]);
+            if (abs >= low && abs < high) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int maskDateRange(int[] days, int length, int fromDay, int untilDay, boolean[] mask) {
+        int upper = INTS.loopBound(length);
+        int count = 0;
+        int i = 0;
+        for (; i < upper; i += INTS.length()) {
+            IntVector day = IntVector.fromArray(INTS, days, i);
+            VectorMask<Integer> inRange = day.compare(VectorOperators.GE, fromDay)
+                    .and(day.compare(VectorOperators.LT, untilDay));
+            inRange.intoArray(mask, i);
+            count += inRange.trueCount();
+        }
+        for (; i < length; i++) {
+            boolean inRange = days[i] >= fromDay && days[i] < untilDay;
+            mask[i] = inRange;
+            if (inRange) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long sumMasked(long[] values, int[] codes, int code, boolean[] mask, int length, long[] sums) {
+        int upper = LONGS.loopBound(length);
+        LongVector income = LongVector.zero(LONGS);
+        LongVector expense = LongVector.zero(LONGS);
+        long count = 0;
+        int i = 0;
+        for (; i < upper; i += LONGS.length()) {
+            LongVector rowCodes = (LongVector) IntVector.fromArray(CODES, codes, i)
+                    .convertShape(VectorOperators.I2L, LONGS, 0);
+            VectorMask<Long> selected = VectorMask.fromArray(LONGS, mask, i)
+                    .and(rowCodes.compare(VectorOperators.EQ, code));
+            LongVector value = LongVector.fromArray(LONGS, values, i);
+            VectorMask<Long> positive = value.compare(VectorOperators.GE, 0L);
+            income = income.add(value, selected.and(positive));
+            expense = expense.sub(value, selected.andNot(positive));
+            count += selected.trueCount();
+        }
+        // Wrapping adds, so the lane order does not change the result
+        long incomeSum = income.reduceLanes(VectorOperators.ADD);
+        long expenseSum = expense.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            if (mask[i] && codes[i] == code) {
+                long value = values[i];
+                if (value >= 0) {
+                    incomeSum += value;
+                } else {
+                    expenseSum -= value;
+                }
+                count++;
+            }
+        }
+        sums[0] += incomeSum;
+        sums[1] += expenseSum;
+        return count;
+    }
+
+    @Override
+    public boolean preferMaskedSums() {
+        return true;
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + LONGS.vectorBitSize();
+    }
+}
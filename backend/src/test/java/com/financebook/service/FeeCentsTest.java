@@ -0,0 +1,210 @@
+package com.financebook.service;
+
+import com.financebook.entity.TransactionFeePlan;
+import com.financebook.repository.PaymentItemRepository;
+import com.financebook.repository.TransactionFeePlanRepository;
+import com.financebook.repository.TransactionFeeRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Randomized parity of the cents fee path ({@link FeeEngineService#computeFeeCents})
+ * with the BigDecimal path (computeFeeTableMode / computeFeeFormulaMode + roundFee).
+ */
+class FeeCentsTest {
+
+    private static final Long USER_ID = 1L;
+    private static final int CASES = 20_000;
+
+    // Largest absolute amount on the cents path: 13 integer digits
+    private static final long MAX_CENTS = 999_999_999_999_999L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SplittableRandom random = new SplittableRandom(20_240_601L);
+
+    private FeeEngineService engine;
+    private double frequency;
+
+    @BeforeEach
+    void setUp() {
+        LedgerAnalyticsService analytics = mock(LedgerAnalyticsService.class, withSettings().stubOnly());
+        when(analytics.paymentFrequency(anyLong(), any(), any())).thenAnswer(invocation -> frequency);
+
+        engine = new FeeEngineService(
+                mock(TransactionFeePlanRepository.class),
+                mock(TransactionFeeRecordRepository.class),
+                mock(PaymentItemRepository.class),
+                analytics,
+                objectMapper);
+    }
+
+    @Test
+    void tableFeesMatchBigDecimalPath() throws Exception {
+        for (int i = 0; i < CASES; i++) {
+            long absCents = randomCents();
+            double c0;
+            double c1;
+            double maxFee;
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    // Short decimal rates hit exact half cents, e.g. 101 cents at 0.005
+                    c0 = shortDecimal();
+                    c1 = 0;
+                    maxFee = 10;
+                }
+                case 1 -> {
+                    // Rates of 100% and more are capped at the amount
+                    c0 = 1 + random.nextInt(50) * 0.5;
+                    c1 = random.nextDouble();
+                    maxFee = c0 + 1;
+                }
+                case 2 -> {
+                    // Clamped to maxFee or to 0
+                    c0 = random.nextDouble(-0.5, 0.5);
+                    c1 = random.nextDouble(-0.5, 0.5);
+                    maxFee = shortDecimal();
+                }
+                default -> {
+                    c0 = random.nextDouble(0, 0.2);
+                    c1 = random.nextDouble(-0.1, 0.1);
+                    maxFee = 0.1;
+                }
+            }
+            frequency = random.nextDouble();
+
+            assertTableParity(tablePlan(c0, c1, maxFee), absCents);
+        }
+    }
+
+    @Test
+    void tableFeesMatchOnEdgeAmounts() throws Exception {
+        long[] amounts = {1, 2, 3, 99, 100, 101, 12_345, MAX_CENTS, MAX_CENTS - 1, 123_456_789_012_345L};
+        double[] rates = {0.005, 0.5, 0.25, 0.125, 0.015, 0.0049999999, 0.9999, 1.0, 1.5};
+        frequency = 0.3;
+        for (long absCents : amounts) {
+            for (double rate : rates) {
+                assertTableParity(tablePlan(rate, 0, 10), absCents);
+            }
+        }
+    }
+
+    @Test
+    void nonFiniteTableRateChargesNothing() throws Exception {
+        // Infinity * 0 in the polynomial gives NaN
+        CompiledFeePlan plan = tablePlan(0.01, Double.POSITIVE_INFINITY, 10);
+        frequency = 0;
+
+        assertTableParity(plan, 12_345);
+        assertThat(engine.computeFeeCents(plan, 12_345, USER_ID)).isZero();
+        assertThat(FeeCents.tableFee(12_345, Double.NaN)).isZero();
+        assertThat(FeeCents.tableFee(12_345, Double.POSITIVE_INFINITY)).isZero();
+    }
+
+    @Test
+    void formulaFeesMatchBigDecimalPath() throws Exception {
+        String[] templates = {
+                "x * %s",        // ties for short decimal factors
+                "%s",            // constant fee
+                "x * %s + y",
+                "x + %s",        // above the amount
+                "x * (1 + %s)",  // above the amount
+                "x * y * %s",
+                "sqrt(x) * %s",
+        };
+        for (int i = 0; i < CASES; i++) {
+            String factor = BigDecimal.valueOf(shortDecimal()).toPlainString();
+            String text = String.format(Locale.ROOT, templates[random.nextInt(templates.length)], factor);
+            frequency = random.nextDouble();
+
+            assertFormulaParity(text, randomCents());
+        }
+    }
+
+    @Test
+    void nonFiniteFormulaResultsChargeNothing() throws Exception {
+        frequency = 0.5;
+        // Division by zero yields 0 as in Python; the others are not finite
+        for (String text : new String[] {"log(x - x)", "sqrt(0 - x)", "x ** 10000", "1 / 0"}) {
+            for (long absCents : new long[] {1, 12_345, MAX_CENTS}) {
+                assertFormulaParity(text, absCents);
+                assertThat(engine.computeFeeCents(formulaPlan(text), absCents, USER_ID)).as(text).isZero();
+            }
+        }
+        assertThat(FeeCents.formulaFee(12_345, Double.NaN)).isZero();
+        assertThat(FeeCents.formulaFee(12_345, Double.NEGATIVE_INFINITY)).isZero();
+    }
+
+    private void assertTableParity(CompiledFeePlan plan, long absCents) {
+        BigDecimal absAmount = BigDecimal.valueOf(absCents, 2);
+        BigDecimal expected = FeeEngineService.roundFee(
+                engine.computeFeeTableMode(plan, absAmount, USER_ID), absAmount);
+        long actual = engine.computeFeeCents(plan, absCents, USER_ID);
+
+        assertThat(BigDecimal.valueOf(actual, 2))
+                .as("table fee of %s at frequency %s", absAmount, frequency)
+                .isEqualByComparingTo(expected);
+    }
+
+    private void assertFormulaParity(String text, long absCents) throws Exception {
+        CompiledFeePlan plan = formulaPlan(text);
+        BigDecimal absAmount = BigDecimal.valueOf(absCents, 2);
+        BigDecimal expected = FeeEngineService.roundFee(
+                engine.computeFeeFormulaMode(plan, absAmount, USER_ID), absAmount);
+        long actual = engine.computeFeeCents(plan, absCents, USER_ID);
+
+        assertThat(BigDecimal.valueOf(actual, 2))
+                .as("formula %s of %s at frequency %s", text, absAmount, frequency)
+                .isEqualByComparingTo(expected);
+    }
+
+    private CompiledFeePlan tablePlan(double c0, double c1, double maxFee) throws Exception {
+        String intervalData = String.format(Locale.ROOT,
+                "{\"0\": {\"coefficients\": [%s, %s], \"maxFee\": %s}}",
+                json(c0), json(c1), json(maxFee));
+        return CompiledFeePlan.compile(TransactionFeePlan.builder()
+                .mode("table")
+                .amountTableJson("[0]")
+                .intervalDataJson(intervalData)
+                .build(), objectMapper);
+    }
+
+    private CompiledFeePlan formulaPlan(String text) throws Exception {
+        return CompiledFeePlan.compile(TransactionFeePlan.builder()
+                .mode("formula")
+                .formulaText(text)
+                .build(), objectMapper);
+    }
+
+    // Mostly small amounts, with 1 cent and 13-digit amounts well represented
+    private long randomCents() {
+        return switch (random.nextInt(5)) {
+            case 0 -> 1 + random.nextInt(3);
+            case 1 -> random.nextLong(MAX_CENTS / 10, MAX_CENTS + 1);
+            case 2 -> 2 * random.nextLong(1, 50_000) + 1;
+            default -> random.nextLong(1, 10_000_000);
+        };
+    }
+
+    // Rates like 0.005 or 0.125 whose decimal form is short
+    private double shortDecimal() {
+        int digits = 1 + random.nextInt(5);
+        return random.nextInt(1, 1000) / Math.pow(10, digits);
+    }
+
+    // JSON has no Infinity literal; a number beyond the double range parses as one
+    private static String json(double value) {
+        return Double.isInfinite(value) ? (value > 0 ? "1e999" : "-1e999") : Double.toString(value);
+    }
+}
@@ -0,0 +1,196 @@
+package com.financebook.service;
+
+import com.financebook.entity.TransactionFeePlan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Parsing and evaluation of {@link FeeFormula}, against the semantics of
+ * Python's safe_eval_formula().
+ */
+class FeeFormulaTest {
+
+    private static final double EPSILON = 1e-12;
+
+    // Same limits as FeeFormula
+    private static final int MAX_LENGTH = 1000;
+    private static final int MAX_DEPTH = 50;
+
+    @Test
+    void followsPythonPrecedence() {
+        assertThat(eval("-2**2")).isEqualTo(-4);
+        assertThat(eval("-x**2", 3, 0)).isEqualTo(-9);
+        assertThat(eval("(-2)**2")).isEqualTo(4);
+        assertThat(eval("2*3**2")).isEqualTo(18);
+        assertThat(eval("2**-1")).isEqualTo(0.5);
+        assertThat(eval("1 + 2 * 3")).isEqualTo(7);
+        assertThat(eval("(1 + 2) * 3")).isEqualTo(9);
+        assertThat(eval("+x - -y", 2, 3)).isEqualTo(5);
+    }
+
+    @Test
+    void powerIsRightAssociative() {
+        assertThat(eval("2**3**2")).isEqualTo(512);
+        assertThat(eval("(2**3)**2")).isEqualTo(64);
+        assertThat(eval("2 ** 2 ** 3")).isEqualTo(256);
+    }
+
+    @Test
+    void otherOperatorsAreLeftAssociative() {
+        assertThat(eval("10 - 4 - 3")).isEqualTo(3);
+        assertThat(eval("16 / 4 / 2")).isEqualTo(2);
+        assertThat(eval("2 * 6 / 3")).isEqualTo(4);
+    }
+
+    @Test
+    void powerIsNotSplitIntoTwoMultiplications() {
+        assertThat(eval("2**3")).isEqualTo(8);
+        assertThat(eval("x**y", 3, 2)).isEqualTo(9);
+        assertRejected("2 * * 3");
+        assertRejected("2 *** 3");
+    }
+
+    @Test
+    void evaluatesVariablesAndNumbers() {
+        assertThat(eval("x", 12.5, 0)).isEqualTo(12.5);
+        assertThat(eval("y", 0, 0.25)).isEqualTo(0.25);
+        assertThat(eval(".5 + 1.5")).isEqualTo(2);
+        assertThat(eval("1e2 + 2.5E-1")).isEqualTo(100.25);
+        assertThat(eval("  x  *  0.01  ", 300, 0)).isCloseTo(3, within(EPSILON));
+    }
+
+    @Test
+    void evaluatesWhitelistedFunctions() {
+        assertThat(eval("abs(-3)")).isEqualTo(3);
+        assertThat(eval("abs(x)", -2.5, 0)).isEqualTo(2.5);
+        assertThat(eval("min(3, 1, 2)")).isEqualTo(1);
+        assertThat(eval("min(x, 5)", 7, 0)).isEqualTo(5);
+        assertThat(eval("max(1, 5)")).isEqualTo(5);
+        assertThat(eval("max(-1, -2, -3)")).isEqualTo(-1);
+        assertThat(eval("sqrt(16)")).isEqualTo(4);
+        assertThat(eval("log(x)", Math.E, 0)).isCloseTo(1, within(EPSILON));
+        assertThat(eval("log(8, 2)")).isCloseTo(3, within(EPSILON));
+        assertThat(eval("log(100, 10)")).isCloseTo(2, within(EPSILON));
+        assertThat(eval("sin(0)")).isEqualTo(0);
+        assertThat(eval("cos(0)")).isEqualTo(1);
+        assertThat(eval("max(min(x, 10), sqrt(y))", 20, 400)).isEqualTo(20);
+    }
+
+    @Test
+    void rejectsWrongArgumentCounts() {
+        for (String name : new String[] {"abs", "sqrt", "sin", "cos"}) {
+            assertRejected(name + "()", "takes exactly 1 argument");
+            assertRejected(name + "(1, 2)", "takes exactly 1 argument");
+        }
+        assertRejected("log()", "takes 1 or 2 arguments");
+        assertRejected("log(1, 2, 3)", "takes 1 or 2 arguments");
+        assertRejected("min()", "takes at least 2 arguments");
+        assertRejected("min(1)", "takes at least 2 arguments");
+        assertRejected("max(1)", "takes at least 2 arguments");
+    }
+
+    @Test
+    void rejectsUnknownNames() {
+        assertRejected("z", "Unknown variable 'z'");
+        assertRejected("x + amount", "Unknown variable 'amount'");
+        assertRejected("exp(1)", "Unknown function 'exp'");
+        assertRejected("__import__(1)", "Unknown function '__import__'");
+        assertRejected("pow(2, 3)", "Unknown function 'pow'");
+    }
+
+    @Test
+    void rejectsUnknownTokens() {
+        for (String text : new String[] {
+                "x % 2", "x // 2", "x ^ 2", "x $ 1", "x; y", "x == y", "'x'", "[x]", "x.real", "x y"}) {
+            assertRejected(text);
+        }
+        assertRejected("1..2", "Invalid number");
+        assertRejected("1e", "Invalid number");
+    }
+
+    @Test
+    void rejectsIncompleteFormulas() {
+        assertRejected("", "Unexpected end of formula");
+        assertRejected("x +", "Unexpected end of formula");
+        assertRejected("(x", "Expected ')'");
+        assertRejected("max(x, 1", "Expected ')'");
+        assertRejected("x)", "Unexpected ')'");
+    }
+
+    @Test
+    void limitsNestingDepth() {
+        // The whole formula counts as one level
+        assertThat(eval(nestedParentheses(MAX_DEPTH - 1))).isEqualTo(1);
+        assertRejected(nestedParentheses(MAX_DEPTH), "nested too deeply");
+
+        assertThat(eval("-".repeat(MAX_DEPTH - 1) + "1")).isEqualTo(-1);
+        assertRejected("-".repeat(MAX_DEPTH) + "1", "nested too deeply");
+        assertRejected("2" + "**2".repeat(MAX_DEPTH), "nested too deeply");
+        assertRejected("abs(".repeat(MAX_DEPTH) + "1" + ")".repeat(MAX_DEPTH), "nested too deeply");
+    }
+
+    @Test
+    void limitsLength() {
+        String longest = "x" + " ".repeat(MAX_LENGTH - 1);
+        assertThat(eval(longest, 2, 0)).isEqualTo(2);
+        assertRejected(longest + " ", "longer than " + MAX_LENGTH);
+    }
+
+    @Test
+    void divisionByZeroYieldsZero() {
+        assertThat(eval("1 / 0")).isZero();
+        assertThat(eval("0 / 0")).isZero();
+        assertThat(eval("x / (y - y)", 5, 1)).isZero();
+        assertThat(eval("1 + x / 0", 5, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void nonFiniteResultsChargeNothing() throws Exception {
+        assertThat(eval("sqrt(0 - x)", 4, 0)).isNaN();
+        assertThat(eval("log(x - x)", 4, 0)).isEqualTo(Double.NEGATIVE_INFINITY);
+        assertThat(eval("x ** 10000", 4, 0)).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(eval("log(1, 1)")).isNaN();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (String text : new String[] {"sqrt(0 - x)", "log(x - x)", "x ** 10000", "log(1, 1)"}) {
+            CompiledFeePlan plan = CompiledFeePlan.compile(TransactionFeePlan.builder()
+                    .mode("formula")
+                    .formulaText(text)
+                    .build(), objectMapper);
+
+            assertThat(plan.formulaFee(new BigDecimal("4.00"), 0.5)).as(text).isZero();
+            assertThat(plan.formulaFeeCents(400, 0.5)).as(text).isZero();
+        }
+    }
+
+    private static double eval(String text) {
+        return eval(text, 0, 0);
+    }
+
+    private static double eval(String text, double x, double y) {
+        return FeeFormula.compile(text).evaluate(x, y);
+    }
+
+    private static void assertRejected(String text) {
+        assertThatThrownBy(() -> FeeFormula.compile(text))
+                .as(text)
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void assertRejected(String text, String message) {
+        assertThatThrownBy(() -> FeeFormula.compile(text))
+                .as(text)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(message);
+    }
+
+    private static String nestedParentheses(int depth) {
+        return "(".repeat(depth) + "1" + ")".repeat(depth);
+    }
+}
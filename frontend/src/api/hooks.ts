@@ -63,10 +63,10 @@ function buildPaymentQuery(params: {
   categoryIds?: number[];
 }): string {
   const usp = new URLSearchParams();
-  if (params.expenseOnly) usp.set('expenseOnly', 'true');
-  if (params.incomeOnly) usp.set('incomeOnly', 'true');
+  if (params.expenseOnly) usp.set('expense_only', 'true');
+  if (params.incomeOnly) usp.set('income_only', 'true');
   if (params.categoryIds && params.categoryIds.length > 0) {
-    params.categoryIds.forEach(id => usp.append('categoryIds', id.toString()));
+    params.categoryIds.forEach(id => usp.append('category_ids', id.toString()));
   }
   return usp.toString() ? `?${usp.toString()}` : '';
 }
@@ -418,23 +418,42 @@ export function useUpdateRecipient() {
   });
 }
 
-export interface ImportCsvSummary {
+export interface ImportJob {
+  id: string;
+  status: 'queued' | 'running' | 'completed' | 'failed';
+  rows_processed: number;
+  rows_failed: number;
+  rows_per_second: number;
   created_payments: number;
   created_recipients: number;
   updated_recipients: number;
   created_categories: number;
+  error: string | null;
 }
 
+const IMPORT_POLL_INTERVAL_MS = 1_000;
+
+/**
+ * Upload a CSV file and wait for the background import job to finish.
+ * Resolves with the finished job; rejects if the job failed.
+ */
 export function useImportCSV() {
   const queryClient = useQueryClient();
-  return useMutation<ImportCsvSummary, Error, File>({
+  return useMutation<ImportJob, Error, File>({
     mutationFn: async (file: File) => {
       const formData = new FormData();
       formData.append('file', file);
-      const res = await api.post<ImportCsvSummary>('/import-csv', formData, {
+      let { data: job } = await api.post<ImportJob>('/import-csv', formData, {
         headers: { 'Content-Type': 'multipart/form-data' },
       });
-      return res.data;
+      while (job.status === 'queued' || job.status === 'running') {
+        await new Promise((resolve) => setTimeout(resolve, IMPORT_POLL_INTERVAL_MS));
+        ({ data: job } = await api.get<ImportJob>(`/import-jobs/${job.id}`));
+      }
+      if (job.status === 'failed') {
+        throw new Error(job.error ?? 'Import failed');
+      }
+      return job;
     },
     onSuccess: () => {
       queryClient.invalidateQueries({ queryKey: ['payment-items'] });